@@ -0,0 +1,24 @@
+package ttt.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ *	Runs the engine benchmarks with the GC profiler, so that every result
+ *	comes with its allocation rate (gc.alloc.rate.norm, bytes per call).
+ *	Accepts the usual JMH command line options, for example a benchmark
+ *	name pattern or -p difficulty=2.
+ */
+public class BenchmarkMain{
+
+	public static void main(String args[]) throws Exception {
+		Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
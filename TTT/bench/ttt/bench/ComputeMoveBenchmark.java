@@ -0,0 +1,52 @@
+package ttt.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *	Benchmark of TicTacToe.computeMove() at each difficulty level, over the
+ *	corpus of TicTacToeBenchmark. The computed move is taken back after each
+ *	call, so the engines keep their position and any state they build
+ *	between moves, as in a running game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComputeMoveBenchmark{
+
+	@Param({"0", "1", "2", "3", "4", "5", "6"})
+	public int difficulty;
+
+	private Object corpus[];
+
+	private int next;
+
+	@Setup
+	public void setup() throws Throwable {
+		corpus = Engine.corpus(TicTacToeBenchmark.CORPUS_SIZE,TicTacToeBenchmark.CORPUS_SEED);
+		for (int i=0; i<corpus.length; i++) Engine.SET_DIFFICULTY.invokeExact(corpus[i],difficulty);
+	}
+
+	@Benchmark
+	public int computeMove() throws Throwable {
+		Object game = corpus[next++ & (TicTacToeBenchmark.CORPUS_SIZE-1)];
+		Engine.COMPUTE_MOVE.invokeExact(game);
+		int moved = (int)Engine.GET_BOARD_KEY.invokeExact(game);
+		boolean undone = (boolean)Engine.UNDO_MOVE.invokeExact(game);
+		return undone ? moved : -1;
+	}
+}
@@ -0,0 +1,94 @@
+package ttt.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ *	Handles on the TicTacToe engine methods used by the benchmarks.
+ *
+ *	TicTacToe lives in the unnamed package, which classes of a named package
+ *	cannot refer to, and JMH refuses benchmarks in the unnamed package. The
+ *	engine is therefore reached through MethodHandles typed on Object. They
+ *	are static final constants, which the JIT inlines like direct calls.
+ */
+final class Engine{
+
+	static final MethodHandle NEW;
+	static final MethodHandle CHECK_WIN;
+	static final MethodHandle CHECK_DRAW;
+	static final MethodHandle CLONE;
+	static final MethodHandle PLACE_MOVE;
+	static final MethodHandle GET_PATTERN;
+	static final MethodHandle COMPUTE_MOVE;
+	static final MethodHandle SET_DIFFICULTY;
+	static final MethodHandle SET_SEED;
+	static final MethodHandle UNDO_MOVE;
+	static final MethodHandle GET_BOARD_KEY;
+
+	static{
+		try{
+			Class<?> ttt = Class.forName("TicTacToe");
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			NEW = lookup.findConstructor(ttt,MethodType.methodType(void.class))
+				.asType(MethodType.methodType(Object.class));
+			CHECK_WIN = handle(lookup,ttt,"checkWin",boolean.class);
+			CHECK_DRAW = handle(lookup,ttt,"checkDraw",boolean.class);
+			CLONE = handle(lookup,ttt,"clone",Object.class);
+			PLACE_MOVE = handle(lookup,ttt,"placeMove",boolean.class,int.class,int.class);
+			GET_PATTERN = handle(lookup,ttt,"getPattern",String.class);
+			COMPUTE_MOVE = handle(lookup,ttt,"computeMove",void.class);
+			SET_DIFFICULTY = handle(lookup,ttt,"setDifficulty",void.class,int.class);
+			SET_SEED = handle(lookup,ttt,"setSeed",void.class,long.class);
+			UNDO_MOVE = handle(lookup,ttt,"undoMove",boolean.class);
+			GET_BOARD_KEY = handle(lookup,ttt,"getBoardKey",int.class);
+		}
+		catch(ReflectiveOperationException e){
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private Engine(){
+	}
+
+	/**
+	 *	Finds a method, private or not, as a handle taking the engine as an
+	 *	Object first argument.
+	 */
+	private static MethodHandle handle(MethodHandles.Lookup lookup, Class<?> ttt, String name,
+			Class<?> returnType, Class<?>... params) throws ReflectiveOperationException {
+		Method method = ttt.getDeclaredMethod(name,params);
+		method.setAccessible(true);
+		MethodHandle handle = lookup.unreflect(method);
+		return handle.asType(handle.type().changeParameterType(0,Object.class).changeReturnType(returnType));
+	}
+
+	/**
+	 *	Builds a fixed corpus of mid-game positions: each is reached by 2 to 6
+	 *	random moves of a seeded engine, and is neither won nor drawn.
+	 *	@param size	Number of positions.
+	 *	@param seed	Seed of the random moves.
+	 *	@return The engines, one per position.
+	 */
+	static Object[] corpus(int size, long seed) throws Throwable {
+		Object games[] = new Object[size];
+		for (int i=0; i<size; ){
+			Object game = NEW.invokeExact();
+			SET_SEED.invokeExact(game,seed+i);
+			SET_DIFFICULTY.invokeExact(game,0);
+			int plies = 2+i%5;
+			boolean over=false;
+			for (int p=0; p<plies && !over; p++){
+				COMPUTE_MOVE.invokeExact(game);
+				over = (boolean)CHECK_WIN.invokeExact(game) || (boolean)CHECK_DRAW.invokeExact(game);
+			}
+			if (over){
+				seed+=size;	//try another game for this slot
+				continue;
+			}
+			games[i++]=game;
+		}
+		return games;
+	}
+}
@@ -0,0 +1,87 @@
+package ttt.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *	Benchmarks of the TicTacToe board operations. Each call works on the
+ *	next position of a fixed corpus of mid-game positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicTacToeBenchmark{
+
+	/** Number of corpus positions, a power of two. */
+	static final int CORPUS_SIZE = 64;
+
+	/** Seed of the corpus, fixed so that all runs measure the same positions. */
+	static final long CORPUS_SEED = 20160101L;
+
+	private Object corpus[];
+
+	/** For each position, a vacant cell (row*3+col) to play with placeMove. */
+	private int vacant[];
+
+	private int next;
+
+	@Setup
+	public void setup() throws Throwable {
+		corpus = Engine.corpus(CORPUS_SIZE,CORPUS_SEED);
+		vacant = new int[CORPUS_SIZE];
+		for (int i=0; i<CORPUS_SIZE; i++){
+			int taken = (int)Engine.GET_BOARD_KEY.invokeExact(corpus[i]);
+			taken = (taken | taken>>>9) & 0x1FF;
+			vacant[i] = Integer.numberOfTrailingZeros(~taken);
+		}
+	}
+
+	private int nextIndex(){
+		return next++ & (CORPUS_SIZE-1);
+	}
+
+	@Benchmark
+	public boolean checkWin() throws Throwable {
+		return (boolean)Engine.CHECK_WIN.invokeExact(corpus[nextIndex()]);
+	}
+
+	@Benchmark
+	public boolean checkDraw() throws Throwable {
+		return (boolean)Engine.CHECK_DRAW.invokeExact(corpus[nextIndex()]);
+	}
+
+	@Benchmark
+	public Object cloneGame() throws Throwable {
+		return (Object)Engine.CLONE.invokeExact(corpus[nextIndex()]);
+	}
+
+	@Benchmark
+	public String getPattern() throws Throwable {
+		return (String)Engine.GET_PATTERN.invokeExact(corpus[nextIndex()]);
+	}
+
+	/**
+	 *	Places a move and takes it back, so the corpus is left unchanged.
+	 */
+	@Benchmark
+	public boolean placeMove() throws Throwable {
+		int i = nextIndex();
+		Object game = corpus[i];
+		boolean placed = (boolean)Engine.PLACE_MOVE.invokeExact(game,vacant[i]/3,vacant[i]%3);
+		boolean undone = (boolean)Engine.UNDO_MOVE.invokeExact(game);
+		return placed & undone;
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ *	Bitboard helpers for the 3x3 TicTacToe grid. The cells taken by one
+ *	symbol are kept as a 9-bit mask, bit (row*3+col) being set for each cell
+ *	holding the symbol, read from left to right, top to bottom:
+ *
+ *	<pre>
+ *	  0|1|2
+ *	  -+-+-
+ *	  3|4|5
+ *	  -+-+-
+ *	  6|7|8
+ *	</pre>
+ */
+public final class BitBoard{
+
+	/** Number of cells on the grid. */
+	public static final int SIZE = 9;
+
+	/** Mask with all the cells set. */
+	public static final int FULL = 0x1FF;
+
+	/** Mask of the 4 corner cells. */
+	public static final int CORNERS = 0x145;
+
+	/** Mask of the middle cell. */
+	public static final int CENTER = 0x010;
+
+	/** Masks of the 8 winning lines: 3 rows, 3 columns and 2 diagonals. */
+	public static final int LINES[] = {
+		0x007, 0x038, 0x1C0,	//rows
+		0x049, 0x092, 0x124,	//columns
+		0x111, 0x054			//diagonals
+	};
+
+	/** Whether a mask holds a winning line, for all 512 masks. */
+	private static final boolean WINS[] = new boolean[FULL+1];
+
+	static{
+		for (int mask=0; mask<=FULL; mask++){
+			for (int i=0; i<LINES.length; i++){
+				if ((mask & LINES[i])==LINES[i]) WINS[mask]=true;
+			}
+		}
+	}
+
+	/**
+	 *	Not instantiable, all methods are static.
+	 */
+	private BitBoard(){
+	}
+
+	/**
+	 *	Get the index of the specified cell.
+	 *	@param row	Row of the cell.
+	 *	@param col	Column of the cell.
+	 *	@return The cell index (0 to 8).
+	 */
+	public static int index(int row, int col){
+		return row*3+col;
+	}
+
+	/**
+	 *	Get the bit of the specified cell.
+	 *	@param row	Row of the cell.
+	 *	@param col	Column of the cell.
+	 *	@return Mask with only the specified cell set.
+	 */
+	public static int bit(int row, int col){
+		return 1<<index(row,col);
+	}
+
+	/**
+	 *	Checks whether the cells of a mask contain a winning line.
+	 *	@param mask Cells taken by one symbol.
+	 *	@return Whether a row, column or diagonal is complete.
+	 */
+	public static boolean isWin(int mask){
+		return WINS[mask & FULL];
+	}
+
+	/**
+	 *	Counts the cells set in a mask.
+	 *	@param mask Any cell mask.
+	 *	@return The number of cells set.
+	 */
+	public static int count(int mask){
+		return Integer.bitCount(mask & FULL);
+	}
+
+	/**
+	 *	Packs the cells of both symbols into a single key, "X" cells in the
+	 *	low 9 bits and "O" cells in the next 9 bits.
+	 *	@param xBits Cells taken by "X".
+	 *	@param oBits Cells taken by "O".
+	 *	@return The 18-bit key.
+	 */
+	public static int key(int xBits, int oBits){
+		return (xBits & FULL) | ((oBits & FULL)<<SIZE);
+	}
+}
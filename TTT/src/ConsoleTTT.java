@@ -1,18 +1,51 @@
 import java.io.*;
+import java.util.StringTokenizer;
 
 /**
  *	Console interface for the TicTacToe game
+ *
+ *	With -batch, games are read from a file or the standard input instead,
+ *	one per line: who starts (0-Player, 1-Computer), the AI level, then the
+ *	player's moves as row and column pairs, for example "0 3 1 1 0 0 2 2".
+ *	The computer plays its own moves. A line is written per game with its
+ *	number, its result (player, computer, draw, unfinished or invalid) and
+ *	the cells played (row*3+col). Blank lines and lines starting with '#'
+ *	are skipped.
+ *
+ *	Usage: java ConsoleTTT [-batch [-board] [-seed n] [file]]
  */
 public class ConsoleTTT{
 	
 	/** A reference to the TicTacToe game */
 	private TicTacToe ttt;
+
+	/** Reader of the player's input, shared by all prompts. */
+	private BufferedReader in;
 	
 	/**
 	 *	Main program entry
-	 *	@args	No external arguments required
+	 *	@args	None for an interactive game, or -batch [-board] [-seed n] [file]
 	 */
-	public static void main(String args[]) {
+	public static void main(String args[]) throws IOException {
+		if (args.length>0 && args[0].equals("-batch")){
+			boolean board=false;
+			Long seed=null;
+			String file=null;
+			for (int i=1; i<args.length; i++){
+				if (args[i].equals("-board")) board=true;
+				else if (args[i].equals("-seed") && i+1<args.length) seed=Long.parseLong(args[++i]);
+				else file=args[i];
+			}
+			BufferedReader input = new BufferedReader(file==null ? new InputStreamReader(System.in) : new FileReader(file),1<<16);
+			Writer output = new BufferedWriter(new OutputStreamWriter(System.out),1<<16);
+			long start = System.nanoTime();
+			long games = consoleBatch(input,output,board,seed);
+			double seconds = (System.nanoTime()-start)/1e9;
+			input.close();
+			System.err.println(games + " games in " + String.format("%.3f",seconds) + " s, "
+				+ String.format("%.0f",seconds>0 ? games/seconds : 0) + " games/s");
+			return;
+		}
 		new ConsoleTTT().consoleGameStart();
 	}
 	
@@ -21,6 +54,7 @@ public class ConsoleTTT{
 	 */
 	public ConsoleTTT(){
 		ttt = new TicTacToe();
+		in = new BufferedReader(new InputStreamReader(System.in));
 	}
 
 	/**
@@ -55,21 +89,132 @@ public class ConsoleTTT{
 	 *	Displays a the game board in the console (ASCII)
 	 */
 	public void consoleBoardDisplay(){
-		String cell[][] = ttt.getCells();
-		System.out.println("\n" +
-			"R0:  " + cell[0][0] + '|' + cell[0][1] + '|' + cell[0][2] + "\n" +
-			"     " + '-'  + '+' + '-'  + '+' + '-'  + "\n" +
-			"R1:  " + cell[1][0] + '|' + cell[1][1] + '|' + cell[1][2] + "\n" +
-			"     " + '-'  + '+' + '-'  + '+' + '-'  + "\n" +
-			"R2:  " + cell[2][0] + '|' + cell[2][1] + '|' + cell[2][2] + "\n"
-		);
+		System.out.println(boardText(ttt));
+	}
+
+	/**
+	 *	Formats the game board as ASCII text, as shown by the console and
+	 *	sent by the GameServer.
+	 *	@param ttt	The game to draw.
+	 *	@return The board, starting with an empty line.
+	 */
+	public static String boardText(TicTacToe ttt){
+		StringBuilder sb = new StringBuilder(64);
+		appendBoard(sb,ttt);
+		return sb.toString();
+	}
+
+	/**
+	 *	Appends the text of boardText() to a buffer, straight from the
+	 *	cells of the game.
+	 *	@param sb	The buffer.
+	 *	@param ttt	The game to draw.
+	 */
+	public static void appendBoard(StringBuilder sb, TicTacToe ttt){
+		Position p = ttt.getPosition();
+		sb.append('\n');
+		for (int r=0; r<3; r++){
+			if (r>0) sb.append("     -+-+-\n");
+			sb.append('R').append((char)('0'+r)).append(":  ");
+			for (int c=0; c<3; c++){
+				int bit = BitBoard.bit(r,c);
+				if (c>0) sb.append('|');
+				sb.append((p.getXBits() & bit)!=0 ? 'X' : (p.getOBits() & bit)!=0 ? 'O' : ' ');
+			}
+			sb.append('\n');
+		}
+	}
+
+	/**
+	 *	Plays the games of a batch, see the class description for the format.
+	 *	@param input	Games, one per line.
+	 *	@param output	Receives a result line per game, flushed at the end.
+	 *	@param board	Whether to write the board after every move.
+	 *	@param seed		Seed of the computer's random choices, game n using
+	 *					a seed derived from seed+n; null for unseeded games.
+	 *	@return The number of games played.
+	 */
+	public static long consoleBatch(BufferedReader input, Writer output, boolean board, Long seed) throws IOException {
+		TicTacToe ttt = new TicTacToe();
+		StringBuilder sb = new StringBuilder(256);
+		long games=0;
+		String line;
+		while ((line=input.readLine())!=null){
+			line=line.trim();
+			if (line.isEmpty() || line.charAt(0)=='#') continue;
+			games++;
+			sb.setLength(0);
+			String result;
+			try{
+				result = batchGame(ttt,new StringTokenizer(line),board ? sb : null,
+					seed==null ? null : SelfPlaySimulator.mix(seed+games));
+			}
+			catch (IllegalArgumentException e){
+				result = "invalid " + e.getMessage();
+			}
+			sb.append(games).append(' ').append(result).append(' ');
+			for (int i=0; i<ttt.getMoveCount(); i++) sb.append((char)('0'+ttt.getMove(i)));
+			sb.append('\n');
+			output.append(sb);
+		}
+		output.flush();
+		return games;
+	}
+
+	/**
+	 *	Plays one game of a batch.
+	 *	@param ttt		The game, reset first.
+	 *	@param tokens	Who starts, the level, then the player's moves.
+	 *	@param board	Receives the boards, null to skip them.
+	 *	@param seed		Seed of the computer, null to leave it as is.
+	 *	@return The result of the game.
+	 *	@throws IllegalArgumentException if a token is not valid.
+	 */
+	private static String batchGame(TicTacToe ttt, StringTokenizer tokens, StringBuilder board, Long seed){
+		ttt.gameReset();
+		if (seed!=null) ttt.setSeed(seed);
+		if (batchValue(tokens,1,"first")==1) ttt.switchPlayer();
+		ttt.setDifficulty(batchValue(tokens,6,"level"));
+		if (board!=null) appendBoard(board,ttt);
+
+		while (true){
+			if (ttt.isPlayerTurn()){
+				if (!tokens.hasMoreTokens()) return "unfinished";
+				int row = batchValue(tokens,2,"row");
+				int col = batchValue(tokens,2,"col");
+				//a filled cell is skipped, as the console asks again
+				if (!ttt.placeMove(row,col)) continue;
+			}
+			else ttt.computeMove();
+			if (board!=null) appendBoard(board,ttt);
+
+			if (ttt.checkWin()) return ttt.isPlayerTurn() ? "computer" : "player";
+			if (ttt.checkDraw()) return "draw";
+		}
+	}
+
+	/**
+	 *	Reads a number of a batch line.
+	 *	@throws IllegalArgumentException if it is missing or not from 0 to max.
+	 */
+	private static int batchValue(StringTokenizer tokens, int max, String name){
+		if (!tokens.hasMoreTokens()) throw new IllegalArgumentException("missing " + name);
+		String token = tokens.nextToken();
+		int value;
+		try{
+			value = Integer.parseInt(token);
+		}
+		catch (NumberFormatException e){
+			value=-1;
+		}
+		if (value<0 || value>max) throw new IllegalArgumentException(name + " " + token);
+		return value;
 	}
 	
 	/**
 	 *	Prompts the player to input values for row and columns
 	 */
 	public void consoleBoardInput(){
-		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
 		String input;
 		int row=0,col=0;
 		
@@ -79,7 +224,7 @@ public class ConsoleTTT{
 		do{
 			try{
 				System.out.print("Enter Row: ");
-				input=in.readLine();
+				input=readLine();
 				row = Integer.parseInt(input);
 				if (row<0 || row>2) throw new IllegalArgumentException();
 				break;
@@ -93,7 +238,7 @@ public class ConsoleTTT{
 		do{
 			try{
 				System.out.print("Enter Col: ");
-				input=in.readLine();
+				input=readLine();
 				col = Integer.parseInt(input);
 				if (col<0 || col>2) throw new IllegalArgumentException();
 				break;
@@ -108,17 +253,27 @@ public class ConsoleTTT{
 			System.out.println("Selected cell already filled. Try again.");
 	}
 	
+	/**
+	 *	Reads a line of the player's input, ending the program when the
+	 *	input is closed.
+	 *	@return The line.
+	 */
+	private String readLine() throws IOException {
+		String line = in.readLine();
+		if (line==null) System.exit(0);
+		return line;
+	}
+
 	/**
 	 *	Prompts the player to input game order and difficulty.
 	 */
 	public void consoleGetOptions(){
-		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
 		String input;
 		int diff=0,first=0;
 		do{
 			try{
 				System.out.print("Who starts first (0-Player, 1-Computer): ");
-				input=in.readLine();
+				input=readLine();
 				first = Integer.parseInt(input);
 				if (first<0 || first>1) throw new IllegalArgumentException();
 				if (first==1) ttt.switchPlayer();
@@ -131,10 +286,10 @@ public class ConsoleTTT{
 
 		do{
 			try{
-				System.out.print("Enter AI level (0-Noob, 1-Normal, 2-God Mode): ");
-				input=in.readLine();
+				System.out.print("Enter AI level (0-Noob, 1-Normal, 2-God Mode, 3-Perfect, 4-Search, 5-Monte Carlo, 6-Learned): ");
+				input=readLine();
 				diff = Integer.parseInt(input);
-				if (diff<0 || diff>2) throw new IllegalArgumentException();
+				if (diff<0 || diff>6) throw new IllegalArgumentException();
 				ttt.setDifficulty(diff);
 				break;
 			}
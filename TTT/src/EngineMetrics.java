@@ -0,0 +1,194 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *	EngineMonitor keeping running totals that can be polled while games
+ *	are played: moves and positions examined per level and path,
+ *	computeMove() latency per level, and clone() calls. Counters are
+ *	LongAdders, so threads do not contend on them; each latency histogram
+ *	is locked only while a move is recorded.
+ */
+public class EngineMetrics implements EngineMonitor{
+
+	/** Number of difficulty levels measured. */
+	public static final int LEVELS = 7;
+
+	/** Names of the paths, by path number. */
+	private static final String PATH_NAMES[] = {"random", "win/block", "book", "strategy", "fallback"};
+
+	/** Moves per level and path. */
+	private final LongAdder moves[][] = new LongAdder[LEVELS][PATHS];
+
+	/** Positions examined per level. */
+	private final LongAdder positions[] = new LongAdder[LEVELS];
+
+	/** computeMove() latency per level. */
+	private final LatencyHistogram latency[] = new LatencyHistogram[LEVELS];
+
+	/** Calls to clone(). */
+	private final LongAdder clones = new LongAdder();
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Creates metrics with all counts at 0.
+	 */
+	public EngineMetrics(){
+		for (int level=0; level<LEVELS; level++){
+			for (int path=0; path<PATHS; path++) moves[level][path] = new LongAdder();
+			positions[level] = new LongAdder();
+			latency[level] = new LatencyHistogram();
+		}
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the name of a computeMove() path.
+	 *	@param path The path, EngineMonitor.RANDOM to FALLBACK.
+	 *	@return The name.
+	 */
+	public static String pathName(int path){
+		return PATH_NAMES[path];
+	}
+
+	public void moveComputed(int difficulty, int path, long positions, long nanos){
+		int level = Math.min(Math.max(difficulty,0),LEVELS-1);
+		moves[level][path].increment();
+		this.positions[level].add(positions);
+		LatencyHistogram h = latency[level];
+		synchronized (h){
+			h.record(nanos);
+		}
+	}
+
+	public void gameCloned(){
+		clones.increment();
+	}
+
+	/**
+	 *	Takes a copy of the current totals. Moves being recorded meanwhile
+	 *	may be partly counted.
+	 *	@return The snapshot.
+	 */
+	public Snapshot snapshot(){
+		Snapshot s = new Snapshot();
+		for (int level=0; level<LEVELS; level++){
+			for (int path=0; path<PATHS; path++) s.moves[level][path]=moves[level][path].sum();
+			s.positions[level]=positions[level].sum();
+			synchronized (latency[level]){
+				s.latency[level].add(latency[level]);
+			}
+		}
+		s.clones=clones.sum();
+		return s;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Snapshot
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	The totals of an EngineMetrics at one point in time.
+	 */
+	public static class Snapshot{
+
+		private final long moves[][] = new long[LEVELS][PATHS];
+		private final long positions[] = new long[LEVELS];
+		private final LatencyHistogram latency[] = new LatencyHistogram[LEVELS];
+		private long clones;
+
+		Snapshot(){
+			for (int level=0; level<LEVELS; level++) latency[level] = new LatencyHistogram();
+		}
+
+		/**
+		 *	Get the number of moves computed at a level.
+		 *	@param level The difficulty level.
+		 *	@return The move count, all paths.
+		 */
+		public long getMoves(int level){
+			long n=0;
+			for (int path=0; path<PATHS; path++) n+=moves[level][path];
+			return n;
+		}
+
+		/**
+		 *	Get the number of moves of a level found through a path.
+		 *	@param level	The difficulty level.
+		 *	@param path		The path, EngineMonitor.RANDOM to FALLBACK.
+		 *	@return The move count.
+		 */
+		public long getMoves(int level, int path){
+			return moves[level][path];
+		}
+
+		/**
+		 *	Get the number of positions examined at a level.
+		 *	@param level The difficulty level.
+		 *	@return The position count.
+		 */
+		public long getPositions(int level){
+			return positions[level];
+		}
+
+		/**
+		 *	Get the computeMove() latency of a level.
+		 *	@param level The difficulty level.
+		 *	@return A copy of the histogram, in nanoseconds.
+		 */
+		public LatencyHistogram getLatency(int level){
+			LatencyHistogram h = new LatencyHistogram();
+			h.add(latency[level]);
+			return h;
+		}
+
+		/**
+		 *	Get the number of calls to clone().
+		 *	@return The clone count.
+		 */
+		public long getClones(){
+			return clones;
+		}
+
+		/**
+		 *	Get how often the opening book of level 2 knew the position,
+		 *	out of the moves that were not a win or a block.
+		 *	@return The hit rate from 0 to 1, 0 if the book was never asked.
+		 */
+		public double getBookHitRate(){
+			long hits = moves[2][BOOK];
+			long asked = hits+moves[2][FALLBACK];
+			return asked==0 ? 0 : (double)hits/asked;
+		}
+
+		/**
+		 *	Formats the snapshot as text, one line per level that moved.
+		 *	@return The report.
+		 */
+		public String report(){
+			StringBuilder sb = new StringBuilder();
+			for (int level=0; level<LEVELS; level++){
+				long n = getMoves(level);
+				if (n==0) continue;
+				sb.append("Level ").append(level).append(": ").append(n).append(" moves");
+				for (int path=0; path<PATHS; path++){
+					if (moves[level][path]>0) sb.append(", ").append(pathName(path)).append(' ').append(moves[level][path]);
+				}
+				sb.append(", ").append(positions[level]).append(" positions\n");
+				sb.append("  latency: ").append(latency[level].summary()).append('\n');
+			}
+			if (moves[2][BOOK]+moves[2][FALLBACK]>0){
+				sb.append("Book hit rate: ").append(String.format("%.2f%%",100*getBookHitRate())).append('\n');
+			}
+			sb.append("Clones: ").append(clones).append('\n');
+			return sb.toString();
+		}
+	}
+}
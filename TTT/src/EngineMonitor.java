@@ -0,0 +1,43 @@
+/**
+ *	Receives measurements from the TicTacToe engine, installed for all
+ *	games with TicTacToe.setMonitor(). The engine calls it from the
+ *	threads playing the games, possibly many at once, so implementations
+ *	must be thread-safe and cheap. EngineMetrics keeps counters and
+ *	latency histograms, JfrMonitor emits Flight Recorder events.
+ */
+public interface EngineMonitor{
+
+	/** Paths of computeMove(): random play of level 0. */
+	int RANDOM = 0;
+
+	/** Paths of computeMove(): a winning or blocking move was found. */
+	int WIN_OR_BLOCK = 1;
+
+	/** Paths of computeMove(): the opening book knew the position. */
+	int BOOK = 2;
+
+	/** Paths of computeMove(): the strategy of the level chose the move. */
+	int STRATEGY = 3;
+
+	/** Paths of computeMove(): the strategy gave up and played randomly. */
+	int FALLBACK = 4;
+
+	/** Number of paths. */
+	int PATHS = 5;
+
+	/**
+	 *	Called after the computer placed a move.
+	 *	@param difficulty	Level that computed the move, 0 for unknown levels.
+	 *	@param path			How the move was found, RANDOM to FALLBACK.
+	 *	@param positions	Positions examined: search nodes, MCTS playouts,
+	 *						1 for a table or book lookup, or the moves
+	 *						valued by the learned level.
+	 *	@param nanos		Time taken by computeMove().
+	 */
+	void moveComputed(int difficulty, int path, long positions, long nanos);
+
+	/**
+	 *	Called when a game is cloned.
+	 */
+	void gameCloned();
+}
@@ -0,0 +1,395 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ *	Append-only binary log of finished TicTacToe games, written through
+ *	memory-mapped files.
+ *
+ *	The log file starts with a header (magic, version, game count, end of
+ *	the data) followed by one record per game: the number of moves and the
+ *	cells played as varints, a flags byte (outcome and who played "X") and
+ *	the difficulty as a varint. A typical game takes about a dozen bytes.
+ *	A second file, the log name plus ".idx", holds the offset of each
+ *	record as a long so any game can be read without scanning the log.
+ *
+ *	Both files grow by doubling and keep their unused tail, the header
+ *	telling where the data ends. The game count is updated last, so a game
+ *	interrupted while being appended is simply not part of the log.
+ *
+ *	Usage: java GameLog file [game]
+ */
+public class GameLog implements Closeable{
+
+	/** "TTTL", first int of a log file. */
+	private static final int MAGIC = 0x5454544C;
+
+	/** Version of the file format. */
+	private static final int VERSION = 1;
+
+	/** Header offsets: magic, version, game count, end of the data. */
+	private static final int COUNT_OFFSET=8, END_OFFSET=16, HEADER_SIZE=24;
+
+	/** Size of the files when created. */
+	private static final int INITIAL_SIZE = 1<<16;
+
+	/** Largest record: 5 byte varints for the count, 9 moves and difficulty, plus flags. */
+	private static final int MAX_RECORD = 5+BitBoard.SIZE+5+1;
+
+	/** Outcome of a game, in the low bits of the flags. */
+	public static final int UNFINISHED=0, X_WINS=1, O_WINS=2, DRAW=3;
+
+	/** Flag set when the computer played "X". */
+	private static final int COMPUTER_X = 4;
+
+	/** The log file. */
+	private final RandomAccessFile dataFile;
+
+	/** The index file. */
+	private final RandomAccessFile indexFile;
+
+	/** Mapping of the log file. */
+	private MappedByteBuffer data;
+
+	/** Mapping of the index file. */
+	private MappedByteBuffer index;
+
+	/** Number of games in the log. */
+	private long count;
+
+	/** Offset where the next record goes. */
+	private long end;
+
+	/**
+	 *	Main program entry: prints the games of a log, or one game move by move.
+	 *	@param args	file [game]
+	 */
+	public static void main(String args[]) throws IOException {
+		if (args.length<1){
+			System.err.println("Usage: java GameLog file [game]");
+			System.exit(1);
+		}
+		GameLog log = new GameLog(new File(args[0]));
+		try{
+			if (args.length>1){
+				Record r = log.read(Long.parseLong(args[1]));
+				System.out.println(r);
+				for (int ply=1; ply<=r.getMoveCount(); ply++) System.out.print(ConsoleTTT.boardText(r.toGame(ply)));
+			}
+			else{
+				for (long i=0; i<log.size(); i++) System.out.println(i + ": " + log.read(i));
+			}
+		}
+		finally{
+			log.close();
+		}
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Opens a log, creating it if the file does not exist.
+	 *	@param file The log file, the index is kept next to it.
+	 *	@throws IOException if the file cannot be mapped or is not a game log.
+	 */
+	public GameLog(File file) throws IOException {
+		boolean create = !file.exists() || file.length()==0;
+		dataFile = new RandomAccessFile(file,"rw");
+		indexFile = new RandomAccessFile(new File(file.getPath()+".idx"),"rw");
+		try{
+			data = map(dataFile,Math.max(INITIAL_SIZE,dataFile.length()));
+			index = map(indexFile,Math.max(INITIAL_SIZE,indexFile.length()));
+			if (create){
+				data.putInt(0,MAGIC);
+				data.putInt(4,VERSION);
+				data.putLong(COUNT_OFFSET,0);
+				data.putLong(END_OFFSET,HEADER_SIZE);
+			}
+			else if (data.getInt(0)!=MAGIC || data.getInt(4)!=VERSION){
+				throw new IOException("Not a game log: " + file);
+			}
+			count = data.getLong(COUNT_OFFSET);
+			end = data.getLong(END_OFFSET);
+			if (count*8>index.capacity()) throw new IOException("Index too short: " + file);
+		}
+		catch (IOException e){
+			close();
+			throw e;
+		}
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Accessor(s) and Mutator(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the number of games in the log.
+	 *	@return The game count.
+	 */
+	public synchronized long size(){
+		return count;
+	}
+
+	/**
+	 *	Get the number of bytes taken by the records.
+	 *	@return The size of the data, header excluded.
+	 */
+	public synchronized long getDataSize(){
+		return end-HEADER_SIZE;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Appends the moves of a game, taken from its history.
+	 *	@param game The game, usually finished.
+	 *	@return The number of the game in the log.
+	 *	@throws IOException if the files cannot be extended.
+	 */
+	public long append(TicTacToe game) throws IOException {
+		int n = game.getMoveCount();
+		int moves[] = new int[n];
+		for (int i=0; i<n; i++) moves[i]=game.getMove(i);
+
+		//the turn switches with every move, go back to the first one
+		boolean playerFirst = game.isPlayerTurn()==((n & 1)==0);
+		return append(moves,n,!playerFirst,game.getDifficulty());
+	}
+
+	/**
+	 *	Appends a game, "X" moving first.
+	 *	@param moves			Cells played (row*3+col), in order.
+	 *	@param n				Number of moves.
+	 *	@param computerFirst	Whether the computer played "X".
+	 *	@param difficulty		Difficulty level of the computer.
+	 *	@return The number of the game in the log.
+	 *	@throws IllegalArgumentException if a move is not a vacant cell.
+	 *	@throws IOException if the files cannot be extended.
+	 */
+	public synchronized long append(int moves[], int n, boolean computerFirst, int difficulty) throws IOException {
+		if (n>BitBoard.SIZE) throw new IllegalArgumentException("Too many moves: " + n);
+		int outcome = outcome(moves,n);
+
+		if (end+MAX_RECORD>data.capacity()) data = map(dataFile,grow(data.capacity(),end+MAX_RECORD));
+		if ((count+1)*8>index.capacity()) index = map(indexFile,grow(index.capacity(),(count+1)*8));
+
+		int pos = (int)end;
+		pos = putVarint(data,pos,n);
+		for (int i=0; i<n; i++) pos = putVarint(data,pos,moves[i]);
+		data.put(pos++,(byte)(outcome | (computerFirst ? COMPUTER_X : 0)));
+		pos = putVarint(data,pos,Math.max(0,difficulty));
+
+		index.putLong((int)(count*8),end);
+		end = pos;
+		data.putLong(END_OFFSET,end);
+		data.putLong(COUNT_OFFSET,++count);
+		return count-1;
+	}
+
+	/**
+	 *	Reads a game of the log.
+	 *	@param game The number of the game, from 0 to size()-1.
+	 *	@return The game record.
+	 */
+	public synchronized Record read(long game){
+		if (game<0 || game>=count) throw new IndexOutOfBoundsException("No game " + game);
+		int pos = (int)index.getLong((int)(game*8));
+		int n = data.get(pos++);	//at most 9, a single varint byte
+		byte moves[] = new byte[n];
+		for (int i=0; i<n; i++) moves[i]=data.get(pos++);
+		int flags = data.get(pos++);
+		int difficulty=0;
+		for (int shift=0;; shift+=7){
+			int b = data.get(pos++);
+			difficulty |= (b & 0x7F)<<shift;
+			if (b>=0) break;
+		}
+		return new Record(moves,flags,difficulty);
+	}
+
+	/**
+	 *	Writes the mapped changes to the disk.
+	 */
+	public synchronized void force(){
+		data.force();
+		index.force();
+	}
+
+	/**
+	 *	Closes the files. The mappings are released once garbage collected.
+	 */
+	public synchronized void close() throws IOException {
+		try{
+			dataFile.close();
+		}
+		finally{
+			indexFile.close();
+		}
+	}
+
+	/**
+	 *	Plays the moves of a game on a board to find its outcome.
+	 */
+	private static int outcome(int moves[], int n){
+		int bits[] = new int[2];
+		for (int i=0; i<n; i++){
+			int bit = 1<<moves[i];
+			if (moves[i]<0 || moves[i]>=BitBoard.SIZE || ((bits[0]|bits[1]) & bit)!=0){
+				throw new IllegalArgumentException("Invalid move " + moves[i] + " at " + i);
+			}
+			bits[i & 1]|=bit;
+			if (BitBoard.isWin(bits[i & 1])) return (i & 1)==0 ? X_WINS : O_WINS;
+		}
+		return (bits[0]|bits[1])==BitBoard.FULL ? DRAW : UNFINISHED;
+	}
+
+	/**
+	 *	Writes an int as a varint: 7 bits per byte, high bit set on all but the last.
+	 *	@return The position after the varint.
+	 */
+	private static int putVarint(MappedByteBuffer b, int pos, int value){
+		while ((value & ~0x7F)!=0){
+			b.put(pos++,(byte)((value & 0x7F) | 0x80));
+			value>>>=7;
+		}
+		b.put(pos++,(byte)value);
+		return pos;
+	}
+
+	/**
+	 *	Doubles a size until it reaches the needed one.
+	 */
+	private static long grow(long size, long needed) throws IOException {
+		while (size<needed) size*=2;
+		if (size>Integer.MAX_VALUE) throw new IOException("Game log full");
+		return size;
+	}
+
+	/**
+	 *	Maps a whole file, extending it to the given size.
+	 */
+	private static MappedByteBuffer map(RandomAccessFile file, long size) throws IOException {
+		return file.getChannel().map(FileChannel.MapMode.READ_WRITE,0,size);
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Record
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	A game read from the log. Its positions are rebuilt from the moves,
+	 *	the computer is not asked for any of them.
+	 */
+	public static class Record{
+
+		/** Cells played, in order. */
+		private final byte moves[];
+
+		/** Outcome and COMPUTER_X. */
+		private final int flags;
+
+		/** Difficulty level of the computer. */
+		private final int difficulty;
+
+		Record(byte moves[], int flags, int difficulty){
+			this.moves=moves;
+			this.flags=flags;
+			this.difficulty=difficulty;
+		}
+
+		/**
+		 *	Get the number of moves of the game.
+		 *	@return The move count.
+		 */
+		public int getMoveCount(){
+			return moves.length;
+		}
+
+		/**
+		 *	Get a move of the game, "X" playing the even ones.
+		 *	@param i Number of the move, 0 for the first one.
+		 *	@return The cell played (row*3+col).
+		 */
+		public int getMove(int i){
+			return moves[i];
+		}
+
+		/**
+		 *	Get how the game ended.
+		 *	@return UNFINISHED, X_WINS, O_WINS or DRAW.
+		 */
+		public int getOutcome(){
+			return flags & 3;
+		}
+
+		/**
+		 *	Get whether the computer played "X", thus moved first.
+		 *	@return Whether the computer started.
+		 */
+		public boolean isComputerFirst(){
+			return (flags & COMPUTER_X)!=0;
+		}
+
+		/**
+		 *	Get the difficulty level the computer played at.
+		 *	@return The difficulty level.
+		 */
+		public int getDifficulty(){
+			return difficulty;
+		}
+
+		/**
+		 *	Get the position after some moves as a board key.
+		 *	@param ply Number of moves played, from 0 to getMoveCount().
+		 *	@return The board key (see BitBoard.key).
+		 */
+		public int getKey(int ply){
+			int x=0, o=0;
+			for (int i=0; i<ply; i++){
+				if ((i & 1)==0) x|=1<<moves[i];
+				else o|=1<<moves[i];
+			}
+			return BitBoard.key(x,o);
+		}
+
+		/**
+		 *	Rebuilds the game after some moves, the player and computer
+		 *	sides set as they were played.
+		 *	@param ply Number of moves played, from 0 to getMoveCount().
+		 *	@return A game in that position, difficulty set.
+		 */
+		public TicTacToe toGame(int ply){
+			if (ply<0 || ply>moves.length) throw new IndexOutOfBoundsException("No ply " + ply);
+			TicTacToe game = new TicTacToe();
+			game.setDifficulty(difficulty);
+			if (isComputerFirst()) game.switchPlayer();
+			for (int i=0; i<ply; i++) game.placeMove(moves[i]/3,moves[i]%3);
+			return game;
+		}
+
+		/**
+		 *	Formats the record: the cells played, outcome and difficulty.
+		 */
+		public String toString(){
+			StringBuilder sb = new StringBuilder();
+			for (int i=0; i<moves.length; i++) sb.append(moves[i]);
+			if (moves.length==0) sb.append('-');
+			String outcomes[] = {"unfinished", "X wins", "O wins", "draw"};
+			sb.append(' ').append(outcomes[getOutcome()]);
+			sb.append(", computer ").append(isComputerFirst() ? "X" : "O");
+			sb.append(", level ").append(difficulty);
+			return sb.toString();
+		}
+	}
+}
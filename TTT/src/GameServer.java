@@ -0,0 +1,555 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *	TCP server hosting many TicTacToe games at once, one per connection.
+ *
+ *	The protocol is line based and follows the console game: the server
+ *	sends the same prompts as ConsoleTTT, one per line, and the client
+ *	answers each with a line holding a number. The board is sent after
+ *	every move and a new game starts when one ends. "quit" closes the
+ *	connection. Lines sent ahead of their prompt are queued, so a client
+ *	may send a whole game at once.
+ *
+ *	All connections are served by one thread with an NIO selector. Computer
+ *	moves run on a bounded pool so that slow levels do not hold up the
+ *	other games; when its queue is full, sessions wait their turn on the
+ *	selector thread.
+ *
+ *	Finished games can be kept in a GameLog. "stats" answers with the
+ *	engine metrics (see EngineMetrics), the server records them for all
+ *	its games when started from main(); -Dttt.jfr=true also emits Flight
+ *	Recorder events.
+ *
+ *	Usage: java GameServer [port] [threads] [queue] [log]
+ */
+public class GameServer{
+
+	/** Port used when none is given. */
+	public static final int DEFAULT_PORT = 4444;
+
+	/** Longest line accepted from a client, longer lines are cut. */
+	private static final int MAX_LINE = 256;
+
+	/** States of a session: the answer expected next. */
+	private static final int FIRST=0, LEVEL=1, ROW=2, COL=3, COMPUTING=4;
+
+	/** The listening socket. */
+	private final ServerSocketChannel server;
+
+	/** The selector of all connections. */
+	private final Selector selector;
+
+	/** Pool computing the computer moves. */
+	private final ThreadPoolExecutor compute;
+
+	/** Sessions whose computer move is done, handed back to the selector thread. */
+	private final Queue<Session> moved = new ConcurrentLinkedQueue<Session>();
+
+	/** Sessions waiting for room in the compute queue (selector thread only). */
+	private final Queue<Session> waiting = new ArrayDeque<Session>();
+
+	/** Buffer the connections are read into (selector thread only). */
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+
+	/** Number of open connections. */
+	private volatile int sessionCount;
+
+	/** Log of the finished games, null if they are not kept. */
+	private GameLog log;
+
+	/** Metrics sent by the "stats" command, null if not kept. */
+	private EngineMetrics metrics;
+
+	/** Cleared to stop the server. */
+	private volatile boolean running = true;
+
+	/**
+	 *	Main program entry
+	 *	@param args	[port] [threads] [queue] [log]
+	 */
+	public static void main(String args[]) throws IOException {
+		int port = args.length>0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int threads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int queue = args.length>2 ? Integer.parseInt(args[2]) : 1024;
+
+		GameServer gs = new GameServer(port,threads,queue);
+		if (args.length>3) gs.setLog(new GameLog(new File(args[3])));
+		EngineMetrics metrics = new EngineMetrics();
+		TicTacToe.setMonitor(Boolean.getBoolean("ttt.jfr") ? new JfrMonitor(metrics) : metrics);
+		gs.setMetrics(metrics);
+		System.out.println("TicTacToe server listening on port " + gs.getPort()
+			+ ", " + threads + " compute threads");
+		gs.run();
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Creates a server listening on a port. Call run() to serve.
+	 *	@param port		The port, 0 for any free port.
+	 *	@param threads	Number of threads computing the computer moves.
+	 *	@param queue	Number of computer moves that may wait for a thread.
+	 */
+	public GameServer(int port, int threads, int queue) throws IOException {
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port),1024);
+		server.configureBlocking(false);
+		server.register(selector,SelectionKey.OP_ACCEPT);
+		compute = new ThreadPoolExecutor(Math.max(1,threads),Math.max(1,threads),0,TimeUnit.SECONDS,
+			new ArrayBlockingQueue<Runnable>(Math.max(1,queue)));
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Accessor(s) and Mutator(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the port the server listens on.
+	 *	@return The local port.
+	 */
+	public int getPort(){
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 *	Get the number of connected clients.
+	 *	@return The session count.
+	 */
+	public int getSessionCount(){
+		return sessionCount;
+	}
+
+	/**
+	 *	Sets the metrics sent to the clients asking for "stats". The
+	 *	metrics have to be installed with TicTacToe.setMonitor() to fill.
+	 *	@param metrics The metrics, null to answer "stats" with nothing.
+	 */
+	public void setMetrics(EngineMetrics metrics){
+		this.metrics=metrics;
+	}
+
+	/**
+	 *	Sets the log the finished games are appended to. Call before run(),
+	 *	the server closes it when it stops.
+	 *	@param log The log, null to keep no games.
+	 */
+	public void setLog(GameLog log){
+		this.log=log;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Serves the clients until stop() is called, then closes all connections.
+	 */
+	public void run() throws IOException {
+		try{
+			while (running){
+				selector.select();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()){
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) continue;
+					if (key.isAcceptable()) accept();
+					else{
+						Session s = (Session)key.attachment();
+						try{
+							if (key.isReadable()) s.read();
+							if (key.isValid() && key.isWritable()) s.flush();
+						}
+						catch (IOException e){
+							s.close();
+						}
+					}
+				}
+
+				//finish the computer moves done meanwhile
+				Session s;
+				while ((s=moved.poll())!=null){
+					if (s.isOpen()) s.computerMoved();
+				}
+				while ((s=waiting.peek())!=null){
+					if (s.isOpen() && !submit(s)) break;
+					waiting.poll();
+				}
+			}
+		}
+		finally{
+			for (SelectionKey key : selector.keys()){
+				if (key.attachment()!=null) ((Session)key.attachment()).close();
+			}
+			server.close();
+			selector.close();
+			compute.shutdown();
+			if (log!=null) log.close();
+		}
+	}
+
+	/**
+	 *	Stops the server, from any thread.
+	 */
+	public void stop(){
+		running=false;
+		selector.wakeup();
+	}
+
+	/**
+	 *	Accepts a pending connection and starts its first game.
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel==null) return;
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		Session s = new Session(channel);
+		s.key = channel.register(selector,SelectionKey.OP_READ,s);
+		sessionCount++;
+		s.newGame();
+		s.flush();
+	}
+
+	/**
+	 *	Hands the computer move of a session to the compute pool.
+	 *	@return Whether the pool took it (false if its queue is full).
+	 */
+	private boolean submit(final Session s){
+		try{
+			compute.execute(() -> {
+				try{
+					s.ttt.computeMove();
+				}
+				catch (RuntimeException e){
+					s.failure=e;
+				}
+				finally{
+					moved.add(s);
+					selector.wakeup();
+				}
+			});
+			return true;
+		}
+		catch (RejectedExecutionException e){
+			return false;
+		}
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Session
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	The game of one connection. Only touched by the selector thread,
+	 *	except its game while a computer move is being computed.
+	 */
+	private class Session{
+
+		/** The connection. */
+		private final SocketChannel channel;
+
+		/** Key of the connection in the selector. */
+		private SelectionKey key;
+
+		/** The game played. */
+		private final TicTacToe ttt = new TicTacToe();
+
+		/** Answer expected next. */
+		private int state;
+
+		/** Row entered, waiting for the column. */
+		private int row;
+
+		/** Characters of the line being received. */
+		private final StringBuilder line = new StringBuilder();
+
+		/**
+		 *	Lines received but not handled yet. Nothing is read while a
+		 *	computer move is under way, so it holds at most the lines of one
+		 *	read.
+		 */
+		private final Queue<String> inbox = new ArrayDeque<String>();
+
+		/** Output not written yet. */
+		private final Queue<ByteBuffer> outbox = new ArrayDeque<ByteBuffer>();
+
+		/**
+		 *	Why the last computer move failed, null if it did not. Set by
+		 *	the compute thread before it queues the session on moved.
+		 */
+		private RuntimeException failure;
+
+		/** Set by "quit": close once the output is written. */
+		private boolean closing;
+
+		Session(SocketChannel channel){
+			this.channel=channel;
+		}
+
+		boolean isOpen(){
+			return channel.isOpen();
+		}
+
+		/**
+		 *	Reads what the client sent and handles the complete lines.
+		 */
+		void read() throws IOException {
+			readBuffer.clear();
+			int n = channel.read(readBuffer);
+			if (n<0){
+				close();
+				return;
+			}
+			for (int i=0; i<n; i++){
+				char c = (char)(readBuffer.get(i) & 0xFF);
+				if (c=='\n'){
+					inbox.add(line.toString().trim());
+					line.setLength(0);
+				}
+				else if (line.length()<MAX_LINE) line.append(c);
+			}
+			handleLines();
+			flush();
+		}
+
+		/**
+		 *	Handles the queued lines, unless a computer move is under way.
+		 */
+		void handleLines(){
+			String input;
+			while (state!=COMPUTING && !closing && (input=inbox.poll())!=null){
+				if (input.equalsIgnoreCase("quit")){
+					send("Bye");
+					closing=true;
+				}
+				else if (input.equalsIgnoreCase("stats")){
+					if (metrics!=null) send(metrics.snapshot().report());
+					prompt();
+				}
+				else handle(input);
+			}
+		}
+
+		/**
+		 *	Handles a line answering the current prompt.
+		 */
+		void handle(String input){
+			int value;
+			try{
+				value = Integer.parseInt(input);
+			}
+			catch (NumberFormatException e){
+				value=-1;
+			}
+
+			switch (state){
+			case FIRST:
+				if (value<0 || value>1){
+					send("Invalid input");
+					prompt();
+					return;
+				}
+				if (value==1) ttt.switchPlayer();
+				state=LEVEL;
+				prompt();
+				break;
+			case LEVEL:
+				if (value<0 || value>6){
+					send("Invalid input");
+					prompt();
+					return;
+				}
+				ttt.setDifficulty(value);
+				send(ConsoleTTT.boardText(ttt));
+				nextTurn();
+				break;
+			case ROW:
+				if (value<0 || value>2){
+					send("Invalid input");
+					prompt();
+					return;
+				}
+				row=value;
+				state=COL;
+				prompt();
+				break;
+			case COL:
+				if (value<0 || value>2){
+					send("Invalid input");
+					prompt();
+					return;
+				}
+				if (!ttt.placeMove(row,value)) send("Selected cell already filled. Try again.");
+				moveDone();
+				break;
+			}
+		}
+
+		/**
+		 *	Sends the prompt of the current state.
+		 */
+		void prompt(){
+			switch (state){
+			case FIRST:
+				send("Who starts first (0-Player, 1-Computer): ");
+				break;
+			case LEVEL:
+				send("Enter AI level (0-Noob, 1-Normal, 2-God Mode, 3-Perfect, 4-Search, 5-Monte Carlo, 6-Learned): ");
+				break;
+			case ROW:
+				send("Enter Row: ");
+				break;
+			case COL:
+				send("Enter Col: ");
+				break;
+			}
+		}
+
+		/**
+		 *	Resets the game and asks for the options.
+		 */
+		void newGame(){
+			ttt.gameReset();
+			state=FIRST;
+			prompt();
+		}
+
+		/**
+		 *	Asks the player for a move, or hands the computer move to the pool.
+		 */
+		void nextTurn(){
+			if (ttt.isPlayerTurn()){
+				send("Current symbol: " + ttt.getCurrentSymbol());
+				state=ROW;
+				prompt();
+			}
+			else{
+				state=COMPUTING;
+				if (!waiting.isEmpty() || !submit(this)) waiting.add(this);
+			}
+		}
+
+		/**
+		 *	Called on the selector thread once the computer has moved, or
+		 *	failed to: the game is then reset rather than the move retried.
+		 */
+		void computerMoved(){
+			if (failure!=null){
+				//retrying would fail the same way: give up this game
+				System.err.println("Computer move failed, game reset: " + failure);
+				send("Computer move failed: " + failure.getMessage());
+				failure=null;
+				newGame();
+			}
+			else moveDone();
+			handleLines();
+			try{
+				flush();
+			}
+			catch (IOException e){
+				close();
+			}
+		}
+
+		/**
+		 *	Shows the board after a move and checks for the end of the game.
+		 */
+		void moveDone(){
+			send(ConsoleTTT.boardText(ttt));
+			if (ttt.checkWin()){
+				if (ttt.isPlayerTurn()) send("Computer Wins");
+				else send("Player Wins");
+				gameOver();
+			}
+			else if (ttt.checkDraw()){
+				send("Its a Draw Game");
+				gameOver();
+			}
+			else nextTurn();
+		}
+
+		/**
+		 *	Logs the finished game and starts a new one.
+		 */
+		void gameOver(){
+			if (log!=null){
+				try{
+					log.append(ttt);
+				}
+				catch (IOException e){
+					System.err.println("Game log failed, no more games are kept: " + e);
+					log=null;
+				}
+			}
+			newGame();
+		}
+
+		/**
+		 *	Queues a line of output.
+		 */
+		void send(String text){
+			outbox.add(ByteBuffer.wrap((text+"\n").getBytes(StandardCharsets.US_ASCII)));
+		}
+
+		/**
+		 *	Writes as much output as the connection takes. Reading stops
+		 *	while output is pending, so a client that does not read its
+		 *	answers cannot make the server buffer more of them, and while a
+		 *	computer move is under way, so lines sent meanwhile wait in the
+		 *	connection rather than in the inbox.
+		 */
+		void flush() throws IOException {
+			ByteBuffer b;
+			while ((b=outbox.peek())!=null){
+				channel.write(b);
+				if (b.hasRemaining()) break;
+				outbox.poll();
+			}
+			if (outbox.isEmpty() && closing){
+				close();
+				return;
+			}
+			if (!outbox.isEmpty()) key.interestOps(SelectionKey.OP_WRITE);
+			else key.interestOps(state==COMPUTING ? 0 : SelectionKey.OP_READ);
+		}
+
+		/**
+		 *	Closes the connection.
+		 */
+		void close(){
+			if (!channel.isOpen()) return;
+			sessionCount--;
+			key.cancel();
+			try{
+				channel.close();
+			}
+			catch (IOException e){
+				//nothing left to do with the connection
+			}
+		}
+	}
+}
@@ -0,0 +1,119 @@
+import java.util.Arrays;
+
+/**
+ *	Hash map from int keys to int values, using open addressing over two
+ *	int arrays so that lookups neither box nor allocate. Keys must not be
+ *	negative. The map grows as needed and does not support removal.
+ */
+public class IntMap{
+
+	/** Marks an unused slot of the key array. */
+	private static final int EMPTY = -1;
+
+	/** Keys, EMPTY if the slot is unused. */
+	private int keys[];
+
+	/** Values matching keys. */
+	private int values[];
+
+	/** Number of keys stored. */
+	private int size;
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Creates a map sized for the given number of keys.
+	 *	@param expected Number of keys expected.
+	 */
+	public IntMap(int expected){
+		int capacity=4;
+		while (capacity<expected*2) capacity<<=1;
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys,EMPTY);
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the number of keys stored.
+	 *	@return The size of the map.
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 *	Get the value of a key.
+	 *	@param key			The key.
+	 *	@param defaultValue	Value returned if the key is not stored.
+	 *	@return The value.
+	 */
+	public int get(int key, int defaultValue){
+		int slot = find(key);
+		return keys[slot]==EMPTY ? defaultValue : values[slot];
+	}
+
+	/**
+	 *	Checks whether a key is stored.
+	 *	@param key The key.
+	 *	@return Whether the map holds the key.
+	 */
+	public boolean containsKey(int key){
+		return keys[find(key)]!=EMPTY;
+	}
+
+	/**
+	 *	Stores the value of a key, replacing any previous value.
+	 *	@param key		The key, not negative.
+	 *	@param value	The value.
+	 */
+	public void put(int key, int value){
+		if (key<0) throw new IllegalArgumentException("Negative key: "+key);
+		int slot = find(key);
+		if (keys[slot]==EMPTY){
+			if ((size+1)*2>keys.length){
+				grow();
+				slot = find(key);
+			}
+			keys[slot]=key;
+			size++;
+		}
+		values[slot]=value;
+	}
+
+	/**
+	 *	Finds the slot of a key: the slot holding it or the empty slot
+	 *	where it should be inserted.
+	 */
+	private int find(int key){
+		int mask = keys.length-1;
+		int slot = (key*0x9E3779B1)>>>7 & mask;
+		while (keys[slot]!=EMPTY && keys[slot]!=key) slot=(slot+1) & mask;
+		return slot;
+	}
+
+	/**
+	 *	Doubles the capacity and stores the keys again.
+	 */
+	private void grow(){
+		int oldKeys[] = keys;
+		int oldValues[] = values;
+		keys = new int[oldKeys.length*2];
+		values = new int[oldKeys.length*2];
+		Arrays.fill(keys,EMPTY);
+		for (int i=0; i<oldKeys.length; i++){
+			if (oldKeys[i]!=EMPTY){
+				int slot = find(oldKeys[i]);
+				keys[slot]=oldKeys[i];
+				values[slot]=oldValues[i];
+			}
+		}
+	}
+}
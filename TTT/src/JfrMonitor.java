@@ -0,0 +1,92 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ *	EngineMonitor emitting Java Flight Recorder events, so that engine
+ *	activity shows in recordings next to CPU and allocation samples.
+ *	The engine itself does not depend on JFR, which is only loaded when
+ *	this monitor is installed:
+ *
+ *		TicTacToe.setMonitor(new JfrMonitor(metrics));
+ *
+ *	The events are recorded when computeMove() returns, their moveTime
+ *	field holds the time the move took.
+ */
+public class JfrMonitor implements EngineMonitor{
+
+	/** Monitor called after each event, null if none. */
+	private final EngineMonitor next;
+
+	/**
+	 *	Creates a monitor emitting events only.
+	 */
+	public JfrMonitor(){
+		this(null);
+	}
+
+	/**
+	 *	Creates a monitor emitting events then passing the calls on.
+	 *	@param next Monitor called after each event, null if none.
+	 */
+	public JfrMonitor(EngineMonitor next){
+		this.next=next;
+	}
+
+	public void moveComputed(int difficulty, int path, long positions, long nanos){
+		ComputeMoveEvent event = new ComputeMoveEvent();
+		if (event.isEnabled()){
+			event.difficulty=difficulty;
+			event.path=EngineMetrics.pathName(path);
+			event.positions=positions;
+			event.moveTime=nanos;
+			event.commit();
+		}
+		if (next!=null) next.moveComputed(difficulty,path,positions,nanos);
+	}
+
+	public void gameCloned(){
+		CloneEvent event = new CloneEvent();
+		if (event.isEnabled()) event.commit();
+		if (next!=null) next.gameCloned();
+	}
+
+	/**
+	 *	A move computed by TicTacToe.computeMove().
+	 */
+	@Name("ttt.ComputeMove")
+	@Label("Compute Move")
+	@Category("TicTacToe")
+	@Description("A move computed by the TicTacToe engine")
+	@StackTrace(false)
+	static class ComputeMoveEvent extends Event{
+
+		@Label("Difficulty")
+		int difficulty;
+
+		@Label("Path")
+		@Description("How the move was found: random, win/block, book, strategy or fallback")
+		String path;
+
+		@Label("Positions")
+		@Description("Search nodes, MCTS playouts, or 1 for a table or book lookup")
+		long positions;
+
+		@Label("Move Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long moveTime;
+	}
+
+	/**
+	 *	A call to TicTacToe.clone(), with its stack trace to find the caller.
+	 */
+	@Name("ttt.Clone")
+	@Label("Clone Game")
+	@Category("TicTacToe")
+	static class CloneEvent extends Event{
+	}
+}
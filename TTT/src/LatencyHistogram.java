@@ -0,0 +1,139 @@
+/**
+ *	Histogram of durations in nanoseconds with a fixed memory footprint.
+ *	Values are counted in buckets of 1/16th of a power of two, so recorded
+ *	values and percentiles are exact to within about 6%. A histogram is
+ *	not thread-safe: give each thread its own and merge them with add().
+ */
+public class LatencyHistogram{
+
+	/** Buckets per power of two. */
+	private static final int SUB_BUCKETS = 16;
+
+	/** log2 of SUB_BUCKETS. */
+	private static final int SUB_BITS = 4;
+
+	/** Number of buckets, enough for any positive long. */
+	private static final int BUCKETS = (64-SUB_BITS+1)*SUB_BUCKETS;
+
+	/** Count of values per bucket. */
+	private final long counts[] = new long[BUCKETS];
+
+	/** Number of values recorded. */
+	private long total;
+
+	/** Sum of the values recorded. */
+	private long sum;
+
+	/** Largest value recorded. */
+	private long max;
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Records a duration.
+	 *	@param nanos The duration in nanoseconds, negative values count as 0.
+	 */
+	public void record(long nanos){
+		if (nanos<0) nanos=0;
+		counts[bucketOf(nanos)]++;
+		total++;
+		sum+=nanos;
+		if (nanos>max) max=nanos;
+	}
+
+	/**
+	 *	Adds all the values of another histogram to this one.
+	 *	@param other The histogram to add.
+	 */
+	public void add(LatencyHistogram other){
+		for (int i=0; i<BUCKETS; i++) counts[i]+=other.counts[i];
+		total+=other.total;
+		sum+=other.sum;
+		if (other.max>max) max=other.max;
+	}
+
+	/**
+	 *	Get the number of values recorded.
+	 *	@return The count.
+	 */
+	public long getCount(){
+		return total;
+	}
+
+	/**
+	 *	Get the largest value recorded.
+	 *	@return The maximum in nanoseconds, 0 if empty.
+	 */
+	public long getMax(){
+		return max;
+	}
+
+	/**
+	 *	Get the mean of the values recorded.
+	 *	@return The mean in nanoseconds, 0 if empty.
+	 */
+	public double getMean(){
+		return total==0 ? 0 : (double)sum/total;
+	}
+
+	/**
+	 *	Get the value below which a given fraction of the values fall.
+	 *	@param fraction The fraction, for example 0.99 for the 99th percentile.
+	 *	@return The upper bound of the matching bucket in nanoseconds, 0 if empty.
+	 */
+	public long getPercentile(double fraction){
+		if (total==0) return 0;
+		long rank = (long)Math.ceil(fraction*total);
+		if (rank<1) rank=1;
+		long seen=0;
+		for (int i=0; i<BUCKETS; i++){
+			seen+=counts[i];
+			if (seen>=rank) return Math.min(upperBound(i),max);
+		}
+		return max;
+	}
+
+	/**
+	 *	Formats the usual percentiles in microseconds on one line.
+	 *	@return The summary.
+	 */
+	public String summary(){
+		return "p50=" + micros(getPercentile(0.50))
+			+ " p90=" + micros(getPercentile(0.90))
+			+ " p99=" + micros(getPercentile(0.99))
+			+ " p99.9=" + micros(getPercentile(0.999))
+			+ " max=" + micros(getMax()) + " (us)";
+	}
+
+	/**
+	 *	Formats nanoseconds as microseconds with one decimal.
+	 */
+	private static String micros(long nanos){
+		return String.valueOf(Math.round(nanos/100.0)/10.0);
+	}
+
+	/**
+	 *	Get the bucket of a value: values below SUB_BUCKETS have their own
+	 *	bucket, above that each power of two is split in SUB_BUCKETS.
+	 */
+	private static int bucketOf(long value){
+		if (value<SUB_BUCKETS) return (int)value;
+		int exp = 63-Long.numberOfLeadingZeros(value);	//value is in [2^exp, 2^(exp+1))
+		int sub = (int)(value>>>(exp-SUB_BITS)) & (SUB_BUCKETS-1);
+		return (exp-SUB_BITS+1)*SUB_BUCKETS + sub;
+	}
+
+	/**
+	 *	Get the largest value falling in a bucket.
+	 */
+	private static long upperBound(int bucket){
+		if (bucket<SUB_BUCKETS) return bucket;
+		int exp = bucket/SUB_BUCKETS + SUB_BITS-1;
+		long sub = bucket%SUB_BUCKETS;
+		long low = (1L<<exp) | (sub<<(exp-SUB_BITS));
+		return low + (1L<<(exp-SUB_BITS)) - 1;
+	}
+}
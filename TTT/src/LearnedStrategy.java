@@ -0,0 +1,30 @@
+/**
+ *	Difficulty level 6: plays the move leading to the best position of the
+ *	ValueTable learned by self-play, choosing randomly between equal
+ *	values. A table that cannot be read fails the move (see
+ *	ValueTable.getDefault); a table file holding no entry makes every move
+ *	equal, and the play is random.
+ */
+public class LearnedStrategy implements Strategy{
+
+	/** Positions examined by the last move. */
+	private long positions;
+
+	public int findMove(TicTacToe game){
+		ValueTable table = ValueTable.getDefault();
+		positions=0;
+		if (table.size()==0) return -1;
+		Position position = game.getPosition();
+		int moves = table.getBestMoves(position.getMine(),position.getTheirs());
+		positions = BitBoard.count(position.getVacant());
+		if (moves==0) return -1;
+		return game.randomCell(moves);
+	}
+
+	public long getPositions(){
+		return positions;
+	}
+
+	public void reset(){
+	}
+}
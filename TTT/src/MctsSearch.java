@@ -0,0 +1,378 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *	Monte Carlo tree search for TicTacToe, on the bitboards of BitBoard.
+ *
+ *	The search is root-parallel: every thread of the pool grows its own tree
+ *	from the same position with its own random playouts, and the visit counts
+ *	of the root moves are summed over the trees to choose the move. The trees
+ *	share nothing while searching, so more cores give more playouts for the
+ *	same time budget. Each tree is kept after a search, and the next search
+ *	starts from the node of its position if it is found within two plies,
+ *	keeping the statistics gathered for it.
+ */
+public class MctsSearch{
+
+	/** Playouts per move when no budget is given. */
+	public static final int DEFAULT_PLAYOUTS = 10000;
+
+	/** Weight of the exploration term of UCT. */
+	private static final double EXPLORATION = 1.4;
+
+	/** Plies searched below the previous root for the new one. */
+	private static final int REUSE_DEPTH = 2;
+
+	/** The pool running the trees. */
+	private final ForkJoinPool pool;
+
+	/** One tree per thread of the pool. */
+	private final Tree trees[];
+
+	/** Playouts per move over all trees, 0 for no limit. */
+	private int playouts = DEFAULT_PLAYOUTS;
+
+	/** Time budget of a move in milliseconds, 0 for no limit. */
+	private long timeLimit;
+
+	/** Number of playouts run by the last search. */
+	private long lastPlayouts;
+
+	/** Share of the playouts won by the move returned by the last search. */
+	private double lastWinRate;
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Creates a searcher running on the common ForkJoinPool.
+	 */
+	public MctsSearch(){
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 *	Creates a searcher running on the given pool.
+	 *	@param pool The pool, its parallelism sets the number of trees.
+	 */
+	public MctsSearch(ForkJoinPool pool){
+		this.pool=pool;
+		trees = new Tree[Math.max(1,pool.getParallelism())];
+		for (int i=0; i<trees.length; i++) trees[i] = new Tree();
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Accessor(s) and Mutator(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Sets the budget of a move. The search stops at whichever limit comes
+	 *	first; if neither is positive DEFAULT_PLAYOUTS is used.
+	 *	@param playouts		Playouts over all trees, 0 for no limit.
+	 *	@param timeLimit	Time budget in milliseconds, 0 for no limit.
+	 */
+	public void setBudget(int playouts, long timeLimit){
+		if (playouts<=0 && timeLimit<=0) playouts=DEFAULT_PLAYOUTS;
+		this.playouts=Math.max(0,playouts);
+		this.timeLimit=Math.max(0,timeLimit);
+	}
+
+	/**
+	 *	Get the number of trees searched in parallel.
+	 *	@return The tree count.
+	 */
+	public int getTreeCount(){
+		return trees.length;
+	}
+
+	/**
+	 *	Get the number of playouts run by the last findMove().
+	 *	@return The playout count.
+	 */
+	public long getPlayouts(){
+		return lastPlayouts;
+	}
+
+	/**
+	 *	Get the expected result of the move returned by the last findMove().
+	 *	@return The share of its playouts won, draws counting one half.
+	 */
+	public double getWinRate(){
+		return lastWinRate;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Drops the trees kept from the previous searches.
+	 */
+	public void clear(){
+		for (Tree tree : trees) tree.root=null;
+	}
+
+	/**
+	 *	Finds the best move for the side to move.
+	 *	@param mine		Cells of the side to move.
+	 *	@param theirs	Cells of the other side.
+	 *	@param seed		Seed of the playouts, the same seed, budget in
+	 *					playouts and tree count give the same move.
+	 *	@return The cell index (row*3+col), or -1 if the game is over.
+	 */
+	public int findMove(int mine, int theirs, long seed){
+		if ((mine|theirs)==BitBoard.FULL || BitBoard.isWin(theirs)) return -1;
+
+		long deadline = timeLimit>0 ? System.nanoTime()+timeLimit*1000000L : Long.MAX_VALUE;
+		int share = playouts>0 ? (playouts+trees.length-1)/trees.length : Integer.MAX_VALUE;
+		List<TreeTask> tasks = new ArrayList<TreeTask>(trees.length);
+		for (int i=0; i<trees.length; i++){
+			trees[i].reroot(mine,theirs);
+			trees[i].rnd = new SplittableRandom(seed+i);
+			tasks.add(new TreeTask(trees[i],share,deadline));
+		}
+		pool.invoke(new RecursiveAction(){
+			protected void compute(){
+				invokeAll(tasks);
+			}
+		});
+
+		//sum the root statistics of all trees
+		int visits[] = new int[BitBoard.SIZE];
+		double wins[] = new double[BitBoard.SIZE];
+		long total=0;
+		for (Tree tree : trees){
+			Node root = tree.root;
+			total+=tree.playouts;
+			for (int i=0; i<root.childCount; i++){
+				Node child = root.children[i];
+				visits[child.move]+=child.visits;
+				wins[child.move]+=child.wins;
+			}
+		}
+		int best=-1;
+		for (int i=0; i<BitBoard.SIZE; i++){
+			if (visits[i]>0 && (best<0 || visits[i]>visits[best])) best=i;
+		}
+		lastPlayouts=total;
+		lastWinRate = best<0 ? 0 : wins[best]/visits[best];
+		return best;
+	}
+
+	/**
+	 *	Plays random moves to the end of the game.
+	 *	@param mine		Cells of the side to move.
+	 *	@param theirs	Cells of the other side.
+	 *	@param rnd		Source of the random moves.
+	 *	@return The result for the side to move: 1 win, 0.5 draw, 0 loss.
+	 */
+	static double playout(int mine, int theirs, SplittableRandom rnd){
+		double result=1;	//result for the owner of "mine"
+		while (true){
+			int vacant = BitBoard.FULL & ~(mine|theirs);
+			if (vacant==0) return 0.5;
+			int n = rnd.nextInt(BitBoard.count(vacant));
+			while (n-->0) vacant&=vacant-1;
+			mine|=vacant & -vacant;
+			if (BitBoard.isWin(mine)) return result;
+			int t=mine; mine=theirs; theirs=t;
+			result=1-result;
+		}
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Tree and tasks
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	A position of the search tree, seen from the side to move. Its
+	 *	statistics are those of the move leading to it, for the side that
+	 *	played it.
+	 */
+	private static class Node{
+
+		/** Cells of the side to move. */
+		final int mine;
+
+		/** Cells of the side that just moved. */
+		final int theirs;
+
+		/** Cell played to reach the node, -1 at a root. */
+		final int move;
+
+		/** Whether the game is over: the last move won or filled the board. */
+		final boolean terminal;
+
+		/** Vacant cells not expanded yet. */
+		int untried;
+
+		/** Expanded children. */
+		Node children[];
+
+		/** Number of expanded children. */
+		int childCount;
+
+		/** Number of playouts through the node. */
+		int visits;
+
+		/** Sum of the playout results for the side that played move. */
+		double wins;
+
+		Node(int mine, int theirs, int move){
+			this.mine=mine;
+			this.theirs=theirs;
+			this.move=move;
+			terminal = BitBoard.isWin(theirs) || (mine|theirs)==BitBoard.FULL;
+			untried = terminal ? 0 : BitBoard.FULL & ~(mine|theirs);
+			children = new Node[BitBoard.count(untried)];
+		}
+
+		/**
+		 *	Get the result of a finished game for the side that just moved.
+		 */
+		double terminalResult(){
+			return BitBoard.isWin(theirs) ? 1 : 0.5;
+		}
+
+		/**
+		 *	Expands a random untried move.
+		 */
+		Node expand(SplittableRandom rnd){
+			int cells = untried;
+			int n = rnd.nextInt(BitBoard.count(cells));
+			while (n-->0) cells&=cells-1;
+			int bit = cells & -cells;
+			untried&=~bit;
+			Node child = new Node(theirs,mine|bit,Integer.numberOfTrailingZeros(bit));
+			children[childCount++]=child;
+			return child;
+		}
+
+		/**
+		 *	Selects the child with the best upper confidence bound (UCT).
+		 */
+		Node select(){
+			double logVisits = Math.log(visits);
+			Node best=null;
+			double bestValue=Double.NEGATIVE_INFINITY;
+			for (int i=0; i<childCount; i++){
+				Node child = children[i];
+				double value = child.wins/child.visits + EXPLORATION*Math.sqrt(logVisits/child.visits);
+				if (value>bestValue){
+					bestValue=value;
+					best=child;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 *	Finds the node of a position among the descendants of this one.
+		 *	@return The node, or null if it is not in the first depth plies.
+		 */
+		Node find(int mine, int theirs, int depth){
+			if (this.mine==mine && this.theirs==theirs) return this;
+			if (depth==0) return null;
+			for (int i=0; i<childCount; i++){
+				Node found = children[i].find(mine,theirs,depth-1);
+				if (found!=null) return found;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 *	The tree grown by one thread, kept between searches.
+	 */
+	private static class Tree{
+
+		/** Source of the random choices of this tree. */
+		SplittableRandom rnd = new SplittableRandom();
+
+		/** Path from the root to the current leaf. */
+		final Node path[] = new Node[BitBoard.SIZE+1];
+
+		/** Position searched. */
+		Node root;
+
+		/** Playouts run by the last search. */
+		int playouts;
+
+		/**
+		 *	Moves the root to the given position, reusing the node of the
+		 *	position if the previous search reached it.
+		 */
+		void reroot(int mine, int theirs){
+			Node found = root==null ? null : root.find(mine,theirs,REUSE_DEPTH);
+			root = found!=null ? found : new Node(mine,theirs,-1);
+		}
+
+		/**
+		 *	Runs playouts until either budget is spent.
+		 */
+		void run(int budget, long deadline){
+			playouts=0;
+			while (playouts<budget){
+				//the clock is read every 16 playouts
+				if ((playouts & 15)==0 && System.nanoTime()>=deadline) break;
+				playout();
+				playouts++;
+			}
+		}
+
+		/**
+		 *	Runs one selection, expansion, playout and backup step.
+		 */
+		void playout(){
+			Node node = root;
+			int depth=0;
+			path[0]=node;
+			while (!node.terminal && node.untried==0){
+				node = node.select();
+				path[++depth]=node;
+			}
+			if (!node.terminal){
+				node = node.expand(rnd);
+				path[++depth]=node;
+			}
+
+			//result for the side that moved into the leaf
+			double result = node.terminal ? node.terminalResult() : 1-MctsSearch.playout(node.mine,node.theirs,rnd);
+			for (int i=depth; i>=0; i--){
+				path[i].visits++;
+				path[i].wins+=result;
+				result=1-result;
+			}
+		}
+	}
+
+	/**
+	 *	Grows one tree on a thread of the pool.
+	 */
+	private static class TreeTask extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		private final Tree tree;
+		private final int budget;
+		private final long deadline;
+
+		TreeTask(Tree tree, int budget, long deadline){
+			this.tree=tree;
+			this.budget=budget;
+			this.deadline=deadline;
+		}
+
+		protected void compute(){
+			tree.run(budget,deadline);
+		}
+	}
+}
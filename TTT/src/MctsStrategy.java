@@ -0,0 +1,27 @@
+/**
+ *	Difficulty level 5: Monte Carlo tree search of the position, in
+ *	parallel on the common ForkJoinPool. The trees are kept from move to
+ *	move within a game, so the playouts of the previous move are reused.
+ *	There is one tree per thread of the pool, so the moves played for a
+ *	seed depend on its parallelism.
+ */
+public class MctsStrategy implements Strategy{
+
+	/** The searcher, created on first use. */
+	private MctsSearch mcts;
+
+	public int findMove(TicTacToe game){
+		if (mcts==null) mcts = new MctsSearch();
+		mcts.setBudget(game.getMctsPlayouts(),game.getMctsTimeLimit());
+		Position position = game.getPosition();
+		return mcts.findMove(position.getMine(),position.getTheirs(),game.getRandom().nextLong());
+	}
+
+	public long getPositions(){
+		return mcts!=null ? mcts.getPlayouts() : 0;
+	}
+
+	public void reset(){
+		if (mcts!=null) mcts.clear();
+	}
+}
@@ -0,0 +1,395 @@
+import java.util.Random;
+
+/**
+ *	Board of the m,n,k game: two players take turns placing a symbol on a
+ *	grid of m rows and n columns, the first to get k symbols in a row
+ *	(horizontally, vertically or diagonally) wins. TicTacToe is the 3,3,3
+ *	game, five-in-a-row on 15x15 is the 15,15,5 game.
+ *
+ *	Cells are numbered row*cols+col. Moves are made and taken back in place
+ *	(makeMove/undoMove) and the win check only looks at the lines going
+ *	through the last move. A Zobrist hash of the position is kept up to date
+ *	on every move.
+ */
+public class MnkBoard{
+
+	/** Value of a vacant cell. */
+	public static final byte NONE = 0;
+
+	/** Value of a cell taken by the first player ("X"). */
+	public static final byte FIRST = 1;
+
+	/** Value of a cell taken by the second player ("O"). */
+	public static final byte SECOND = 2;
+
+	/** Cap on the symbols counted per line by evaluate(), keeps scores in range. */
+	private static final int MAX_WEIGHT = 8;
+
+	/**
+	 *	Bound on the magnitude of evaluate() scores, well below the scores
+	 *	MnkSearch gives to forced wins, whatever the board size and k.
+	 */
+	public static final int MAX_EVALUATION = 500000;
+
+	/** Row and column steps of the 4 line directions. */
+	private static final int DIRECTIONS[][] = {{0,1},{1,0},{1,1},{1,-1}};
+
+	/** Number of rows (m). */
+	private final int rows;
+
+	/** Number of columns (n). */
+	private final int cols;
+
+	/** Number of symbols in a row needed to win (k). */
+	private final int k;
+
+	/** The cells, NONE, FIRST or SECOND. */
+	private final byte cells[];
+
+	/** Cells played so far, in order. */
+	private final int history[];
+
+	/** Number of moves played. */
+	private int moveCount;
+
+	/** Number of vacant cells. */
+	private int vacantCount;
+
+	/** The player to move, FIRST or SECOND. */
+	private byte currentPlayer;
+
+	/** Whether the last move made a line of k. */
+	private boolean won;
+
+	/** Zobrist hash of the cells and the player to move. */
+	private long hash;
+
+	/** Zobrist keys, per player and cell. */
+	private final long zobrist[][];
+
+	/** Zobrist key of the second player to move. */
+	private final long zobristSide;
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Creates an empty board, the first player to move.
+	 *	@param rows	Number of rows (m).
+	 *	@param cols	Number of columns (n).
+	 *	@param k	Number of symbols in a row needed to win.
+	 */
+	public MnkBoard(int rows, int cols, int k){
+		if (rows<1 || cols<1 || k<1 || (k>rows && k>cols))
+			throw new IllegalArgumentException("Invalid m,n,k game: "+rows+","+cols+","+k);
+		this.rows=rows;
+		this.cols=cols;
+		this.k=k;
+		cells = new byte[rows*cols];
+		history = new int[rows*cols];
+		vacantCount = cells.length;
+
+		//fixed seed so that equal positions hash the same on all boards of a size
+		Random rnd = new Random(((long)rows<<32) ^ ((long)cols<<16) ^ k);
+		zobrist = new long[3][rows*cols];
+		for (int p=FIRST; p<=SECOND; p++){
+			for (int i=0; i<cells.length; i++) zobrist[p][i]=rnd.nextLong();
+		}
+		zobristSide = rnd.nextLong();
+		currentPlayer = FIRST;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Accessor(s) and Mutator(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the number of rows (m).
+	 *	@return The number of rows.
+	 */
+	public int getRows(){
+		return rows;
+	}
+
+	/**
+	 *	Get the number of columns (n).
+	 *	@return The number of columns.
+	 */
+	public int getCols(){
+		return cols;
+	}
+
+	/**
+	 *	Get the number of symbols in a row needed to win (k).
+	 *	@return The line length.
+	 */
+	public int getK(){
+		return k;
+	}
+
+	/**
+	 *	Get the number of cells of the board.
+	 *	@return rows*cols.
+	 */
+	public int getSize(){
+		return cells.length;
+	}
+
+	/**
+	 *	Get the index of the specified cell.
+	 *	@param row	Row of the cell.
+	 *	@param col	Column of the cell.
+	 *	@return The cell index.
+	 */
+	public int index(int row, int col){
+		if (row<0 || row>=rows || col<0 || col>=cols) throw new IndexOutOfBoundsException();
+		return row*cols+col;
+	}
+
+	/**
+	 *	Get the player holding a cell.
+	 *	@param index The cell index.
+	 *	@return NONE, FIRST or SECOND.
+	 */
+	public byte getCell(int index){
+		return cells[index];
+	}
+
+	/**
+	 *	Sets the player holding a cell, outside of the normal move order.
+	 *	Used to set a position up; the move history is not changed.
+	 *	@param index	The cell index.
+	 *	@param player	NONE, FIRST or SECOND.
+	 */
+	public void setCell(int index, byte player){
+		if (cells[index]!=NONE){
+			hash^=zobrist[cells[index]][index];
+			vacantCount++;
+		}
+		cells[index]=player;
+		if (player!=NONE){
+			hash^=zobrist[player][index];
+			vacantCount--;
+		}
+		won=false;
+	}
+
+	/**
+	 *	Gets the symbol for the specified cell.
+	 *	@param row	Row of the cell.
+	 *	@param col	Column of the cell.
+	 *	@return "X", "O" or " ".
+	 */
+	public String getCellSymbol(int row, int col){
+		switch(cells[index(row,col)]){
+		case FIRST:		return "X";
+		case SECOND:	return "O";
+		default:		return " ";
+		}
+	}
+
+	/**
+	 *	Checks whether a cell is vacant.
+	 *	@param index The cell index.
+	 *	@return Whether no player holds the cell.
+	 */
+	public boolean isVacant(int index){
+		return cells[index]==NONE;
+	}
+
+	/**
+	 *	Get the number of vacant cells.
+	 *	@return The number of cells no player holds.
+	 */
+	public int getVacantCount(){
+		return vacantCount;
+	}
+
+	/**
+	 *	Get the player to move.
+	 *	@return FIRST or SECOND.
+	 */
+	public byte getCurrentPlayer(){
+		return currentPlayer;
+	}
+
+	/**
+	 *	Sets the player to move.
+	 *	@param player FIRST or SECOND.
+	 */
+	public void setCurrentPlayer(byte player){
+		if (player!=FIRST && player!=SECOND) return;
+		if (player!=currentPlayer) hash^=zobristSide;
+		currentPlayer=player;
+	}
+
+	/**
+	 *	Get the number of moves played with makeMove and not taken back.
+	 *	@return The number of moves in the history.
+	 */
+	public int getMoveCount(){
+		return moveCount;
+	}
+
+	/**
+	 *	Get the last move played.
+	 *	@return The cell index of the last move, or -1 if none.
+	 */
+	public int getLastMove(){
+		return moveCount==0 ? -1 : history[moveCount-1];
+	}
+
+	/**
+	 *	Get the Zobrist hash of the position, including the player to move.
+	 *	@return The hash.
+	 */
+	public long getHash(){
+		return hash;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Places the current player's symbol on a vacant cell and passes the turn.
+	 *	@param index The cell index, must be vacant.
+	 *	@return Whether the move makes a line of k.
+	 */
+	public boolean makeMove(int index){
+		if (cells[index]!=NONE) throw new IllegalStateException("Cell "+index+" is not vacant");
+		cells[index]=currentPlayer;
+		hash^=zobrist[currentPlayer][index]^zobristSide;
+		history[moveCount++]=index;
+		vacantCount--;
+		won=isLine(index);
+		currentPlayer = (currentPlayer==FIRST) ? SECOND : FIRST;
+		return won;
+	}
+
+	/**
+	 *	Takes the last move back.
+	 */
+	public void undoMove(){
+		int index = history[--moveCount];
+		currentPlayer = cells[index];
+		hash^=zobrist[currentPlayer][index]^zobristSide;
+		cells[index]=NONE;
+		vacantCount++;
+		won=false;
+	}
+
+	/**
+	 *	Checks whether the last move made a line of k.
+	 *	@return Whether a winning state is found.
+	 */
+	public boolean checkWin(){
+		return won;
+	}
+
+	/**
+	 *	Checks whether all the cells are taken without a win.
+	 *	@return Whether a draw state is found.
+	 */
+	public boolean checkDraw(){
+		return !won && vacantCount==0;
+	}
+
+	/**
+	 *	Checks whether the symbol on a cell is part of a line of k, looking
+	 *	only at the 4 lines going through that cell.
+	 *	@param index The cell index.
+	 *	@return Whether a line of k goes through the cell.
+	 */
+	public boolean isLine(int index){
+		byte player = cells[index];
+		if (player==NONE) return false;
+		int row = index/cols, col = index%cols;
+		for (int d=0; d<DIRECTIONS.length; d++){
+			int dr = DIRECTIONS[d][0], dc = DIRECTIONS[d][1];
+			int count = 1 + countFrom(row,col,dr,dc,player) + countFrom(row,col,-dr,-dc,player);
+			if (count>=k) return true;
+		}
+		return false;
+	}
+
+	/**
+	 *	Counts the consecutive cells held by a player from a cell, in one
+	 *	direction, not counting the cell itself.
+	 */
+	private int countFrom(int row, int col, int dr, int dc, byte player){
+		int count=0;
+		int r=row+dr, c=col+dc;
+		while (count<k && r>=0 && r<rows && c>=0 && c<cols && cells[r*cols+c]==player){
+			count++;
+			r+=dr;
+			c+=dc;
+		}
+		return count;
+	}
+
+	/**
+	 *	Scores the position for the player to move by looking at every line
+	 *	of k cells on the board: a line held only by one player is worth more
+	 *	the more of its cells are taken, lines held by both are worth nothing.
+	 *	@return The heuristic score, positive if the player to move is ahead,
+	 *			clamped to +/-MAX_EVALUATION.
+	 */
+	public int evaluate(){
+		long score=0;
+		for (int d=0; d<DIRECTIONS.length; d++){
+			int dr = DIRECTIONS[d][0], dc = DIRECTIONS[d][1];
+			for (int row=0; row<rows; row++){
+				int endRow = row+dr*(k-1);
+				if (endRow<0 || endRow>=rows) continue;
+				for (int col=0; col<cols; col++){
+					int endCol = col+dc*(k-1);
+					if (endCol<0 || endCol>=cols) continue;
+					int mine=0, theirs=0;
+					for (int i=0, r=row, c=col; i<k; i++, r+=dr, c+=dc){
+						byte cell = cells[r*cols+c];
+						if (cell==currentPlayer) mine++;
+						else if (cell!=NONE) theirs++;
+					}
+					if (theirs==0 && mine>0) score+=1<<(2*Math.min(mine,MAX_WEIGHT));
+					else if (mine==0 && theirs>0) score-=1<<(2*Math.min(theirs,MAX_WEIGHT));
+				}
+			}
+		}
+		return (int)Math.max(-MAX_EVALUATION,Math.min(MAX_EVALUATION,score));
+	}
+
+	/**
+	 *	Collects the vacant cells worth playing: those within 2 cells of a
+	 *	taken cell, or the middle cell on an empty board. On large boards
+	 *	this keeps the search away from the empty regions.
+	 *	@param moves	Array receiving the cell indexes, of getSize() length.
+	 *	@return The number of moves stored.
+	 */
+	public int getCandidateMoves(int moves[]){
+		int n=0;
+		if (vacantCount==cells.length){
+			moves[n++]=(rows/2)*cols+cols/2;
+			return n;
+		}
+		for (int i=0; i<cells.length; i++){
+			if (cells[i]!=NONE) continue;
+			int row = i/cols, col = i%cols;
+			boolean near=false;
+			for (int r=Math.max(0,row-2); r<=Math.min(rows-1,row+2) && !near; r++){
+				for (int c=Math.max(0,col-2); c<=Math.min(cols-1,col+2); c++){
+					if (cells[r*cols+c]!=NONE){
+						near=true;
+						break;
+					}
+				}
+			}
+			if (near) moves[n++]=i;
+		}
+		return n;
+	}
+}
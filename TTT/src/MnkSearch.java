@@ -0,0 +1,303 @@
+/**
+ *	Alpha-beta searcher for the m,n,k game (see MnkBoard). The search deepens
+ *	one ply at a time until the game is solved, every cell is searched, or
+ *	the time budget of the move runs out; the move of the last completed
+ *	depth is then played. Results are kept in a TranspositionTable which
+ *	also orders the moves of the next iteration and of the next moves.
+ *
+ *	4x4 boards whose Tablebase file is found are not searched: the move is
+ *	looked up in the table instead.
+ *
+ *	Searchers keep state between moves and are not thread-safe.
+ */
+public class MnkSearch{
+
+	/** Score of a win on the next move, wins further away score one less per ply. */
+	public static final int WIN = 1000000;
+
+	/**
+	 *	Scores beyond this are wins or losses found by the search; must stay
+	 *	above MnkBoard.MAX_EVALUATION so heuristic scores never read as wins.
+	 */
+	private static final int WIN_BOUND = WIN-1000;
+
+	/** Default time budget of a move in milliseconds. */
+	public static final long DEFAULT_TIME_LIMIT = 1000;
+
+	/** Default number of transposition table entries. */
+	public static final int DEFAULT_TABLE_SIZE = 1<<20;
+
+	/** Nodes searched between two checks of the clock. */
+	private static final int CLOCK_INTERVAL = 1024;
+
+	/** Results of the previous searches. */
+	private final TranspositionTable table;
+
+	/** Time budget of a move in milliseconds. */
+	private long timeLimit;
+
+	/** Time at which the current search must stop (System.nanoTime). */
+	private long deadline;
+
+	/** Whether the current search ran out of time. */
+	private boolean aborted;
+
+	/** Number of nodes searched by the last findMove(). */
+	private long nodes;
+
+	/** Depth of the last completed iteration. */
+	private int depth;
+
+	/** Score of the last completed iteration. */
+	private int score;
+
+	/** One move buffer per ply, sized for the board being searched. */
+	private int moveBuffers[][];
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Creates a searcher with the default time budget and table size.
+	 */
+	public MnkSearch(){
+		this(DEFAULT_TIME_LIMIT,DEFAULT_TABLE_SIZE);
+	}
+
+	/**
+	 *	Creates a searcher.
+	 *	@param timeLimit	Time budget of a move in milliseconds.
+	 *	@param tableSize	Maximum number of transposition table entries.
+	 */
+	public MnkSearch(long timeLimit, int tableSize){
+		setTimeLimit(timeLimit);
+		table = new TranspositionTable(tableSize);
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Accessor(s) and Mutator(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the time budget of a move.
+	 *	@return The time budget in milliseconds.
+	 */
+	public long getTimeLimit(){
+		return timeLimit;
+	}
+
+	/**
+	 *	Sets the time budget of a move.
+	 *	@param millis The time budget in milliseconds (at least 1).
+	 */
+	public void setTimeLimit(long millis){
+		timeLimit = Math.max(1,millis);
+	}
+
+	/**
+	 *	Get the number of nodes searched by the last findMove().
+	 *	@return The node count.
+	 */
+	public long getNodes(){
+		return nodes;
+	}
+
+	/**
+	 *	Get the depth completed by the last findMove().
+	 *	@return The depth in plies.
+	 */
+	public int getDepth(){
+		return depth;
+	}
+
+	/**
+	 *	Get the score of the move returned by the last findMove(), for the
+	 *	player who was to move.
+	 *	@return The score, WIN minus the plies to the win for a forced win.
+	 */
+	public int getScore(){
+		return score;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Finds the best move for the player to move. The board is searched in
+	 *	place and is back to its original state on return.
+	 *	@param board The position to search.
+	 *	@return The cell index of the move, or -1 if the game is over.
+	 */
+	public int findMove(MnkBoard board){
+		nodes=0;
+		depth=0;
+		score=0;
+		aborted=false;
+		deadline = System.nanoTime()+timeLimit*1000000L;
+		if (board.checkWin()) return -1;
+
+		//solved boards are looked up
+		Tablebase tb = Tablebase.forBoard(board.getRows(),board.getCols(),board.getK());
+		if (tb!=null){
+			int move = tb.bestMove(board);
+			if (move>=0){
+				int value = tb.probe(board);
+				int plies = Tablebase.distanceOf(value);
+				if (Tablebase.resultOf(value)==Tablebase.WIN) score=WIN-plies;
+				else if (Tablebase.resultOf(value)==Tablebase.LOSS) score=-(WIN-plies);
+				depth=plies;
+				nodes=1;
+				return move;
+			}
+		}
+
+		int plies = board.getVacantCount();
+		if (moveBuffers==null || moveBuffers[0].length!=board.getSize())
+			moveBuffers = new int[board.getSize()+1][board.getSize()];
+		table.newSearch();
+
+		int moves[] = moveBuffers[0];
+		int n = board.getCandidateMoves(moves);
+		if (n==0) return -1;
+
+		//take an immediate win without searching
+		for (int i=0; i<n; i++){
+			boolean win = board.makeMove(moves[i]);
+			board.undoMove();
+			if (win){
+				score=WIN-1;
+				return moves[i];
+			}
+		}
+
+		int bestMove = moves[0];
+		for (int d=1; d<=plies; d++){
+			int iterationMove=-1;
+			int alpha=-WIN-1;
+			for (int i=0; i<n; i++){
+				int s;
+				if (board.makeMove(moves[i])) s=WIN-1;
+				else if (board.getVacantCount()==0) s=0;
+				else s=-negamax(board,d-1,-WIN-1,-alpha,1);
+				board.undoMove();
+				if (aborted) break;
+				if (s>alpha){
+					alpha=s;
+					iterationMove=moves[i];
+				}
+			}
+			if (aborted) break;
+
+			bestMove=iterationMove;
+			depth=d;
+			score=alpha;
+			table.store(board.getHash(),alpha,TranspositionTable.EXACT,d,bestMove);
+			if (Math.abs(alpha)>WIN_BOUND) break;	//solved
+
+			//search the best move first on the next iteration
+			for (int i=0; i<n; i++){
+				if (moves[i]==bestMove){
+					moves[i]=moves[0];
+					moves[0]=bestMove;
+					break;
+				}
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 *	Searches a position to a fixed depth.
+	 *	@param board	The position, the previous move did not end the game.
+	 *	@param depth	Remaining depth in plies.
+	 *	@param alpha	Score the player to move is already sure of.
+	 *	@param beta		Score the opponent is already sure of.
+	 *	@param ply		Distance from the root.
+	 *	@return The score for the player to move.
+	 */
+	private int negamax(MnkBoard board, int depth, int alpha, int beta, int ply){
+		if ((++nodes % CLOCK_INTERVAL)==0 && System.nanoTime()>deadline) aborted=true;
+		if (aborted) return 0;
+
+		long entry = table.probe(board.getHash());
+		int ttMove=-1;
+		if (entry!=TranspositionTable.MISS){
+			ttMove = TranspositionTable.moveOf(entry);
+			if (TranspositionTable.depthOf(entry)>=depth){
+				int s = fromTable(TranspositionTable.scoreOf(entry),ply);
+				switch(TranspositionTable.boundOf(entry)){
+				case TranspositionTable.EXACT:
+					return s;
+				case TranspositionTable.LOWER:
+					if (s>=beta) return s;
+					break;
+				case TranspositionTable.UPPER:
+					if (s<=alpha) return s;
+					break;
+				}
+			}
+		}
+		if (depth==0) return board.evaluate();
+
+		int moves[] = moveBuffers[ply];
+		int n = board.getCandidateMoves(moves);
+		if (n==0) return 0;
+		for (int i=1; i<n; i++){
+			if (moves[i]==ttMove){
+				moves[i]=moves[0];
+				moves[0]=ttMove;
+				break;
+			}
+		}
+
+		int alphaOrig=alpha;
+		int best=-WIN-1;
+		int bestMove=-1;
+		for (int i=0; i<n; i++){
+			int s;
+			if (board.makeMove(moves[i])) s=WIN-ply-1;
+			else if (board.getVacantCount()==0) s=0;
+			else s=-negamax(board,depth-1,-beta,-alpha,ply+1);
+			board.undoMove();
+			if (aborted) return 0;
+
+			if (s>best){
+				best=s;
+				bestMove=moves[i];
+			}
+			if (s>alpha) alpha=s;
+			if (alpha>=beta) break;
+		}
+
+		int bound;
+		if (best<=alphaOrig) bound=TranspositionTable.UPPER;
+		else if (best>=beta) bound=TranspositionTable.LOWER;
+		else bound=TranspositionTable.EXACT;
+		table.store(board.getHash(),toTable(best,ply),bound,depth,bestMove);
+		return best;
+	}
+
+	/**
+	 *	Converts a win score from distance to the root to distance to the
+	 *	node, so that it can be reused from another ply.
+	 */
+	private static int toTable(int s, int ply){
+		if (s>WIN_BOUND) return s+ply;
+		if (s<-WIN_BOUND) return s-ply;
+		return s;
+	}
+
+	/**
+	 *	Converts a win score read from the table back to distance to the root.
+	 */
+	private static int fromTable(int s, int ply){
+		if (s>WIN_BOUND) return s-ply;
+		if (s<-WIN_BOUND) return s+ply;
+		return s;
+	}
+}
@@ -0,0 +1,175 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ *	Opening book used by strategyPattern: the moves to play in known
+ *	positions, loaded from a text file (see openings.txt for the format).
+ *
+ *	Positions are stored once per symmetry class, keyed by their canonical
+ *	form (see Symmetry.canonical) in a hash map. A lookup reduces the board
+ *	the same way and transforms the stored moves back to its orientation,
+ *	so a single line of the file covers all the rotations and reflections
+ *	of a position.
+ */
+public class OpeningBook{
+
+	/** Name of the resource holding the default book. */
+	public static final String DEFAULT_RESOURCE = "openings.txt";
+
+	/** The default book, loaded on first use. */
+	private static OpeningBook defaultBook;
+
+	/** Moves by canonical key: BitBoard.key(computer cells, human cells). */
+	private final IntMap moves = new IntMap(64);
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Creates an empty book.
+	 */
+	public OpeningBook(){
+	}
+
+	/**
+	 *	Reads a book.
+	 *	@param in The book text, closed when read.
+	 *	@throws IOException If the book cannot be read.
+	 *	@throws IllegalArgumentException If a line is not valid.
+	 */
+	public OpeningBook(InputStream in) throws IOException {
+		this(new InputStreamReader(in,"US-ASCII"));
+	}
+
+	/**
+	 *	Reads a book from text, for callers that get it by other means than
+	 *	a stream of the engine resources.
+	 *	@param in The book text, closed when read.
+	 *	@throws IOException If the book cannot be read.
+	 *	@throws IllegalArgumentException If a line is not valid.
+	 */
+	public OpeningBook(Reader in) throws IOException {
+		BufferedReader reader = new BufferedReader(in);
+		try{
+			String line;
+			int lineNumber=0;
+			while ((line=reader.readLine())!=null){
+				lineNumber++;
+				line=line.trim();
+				if (line.length()==0 || line.charAt(0)=='#') continue;
+				try{
+					parseLine(line);
+				}
+				catch(IllegalArgumentException e){
+					throw new IllegalArgumentException("Line "+lineNumber+": "+e.getMessage());
+				}
+			}
+		}
+		finally{
+			reader.close();
+		}
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the default book, read from the DEFAULT_RESOURCE next to the
+	 *	engine classes.
+	 *	@return The default book.
+	 *	@throws IllegalStateException If the resource is missing or cannot be
+	 *								  read, for example when the build did not
+	 *								  copy it next to the classes.
+	 */
+	public static synchronized OpeningBook getDefault(){
+		if (defaultBook==null){
+			InputStream in = OpeningBook.class.getResourceAsStream(DEFAULT_RESOURCE);
+			if (in==null) throw new IllegalStateException("Opening book resource "+DEFAULT_RESOURCE+" not found next to the engine classes");
+			try{
+				defaultBook = new OpeningBook(in);
+			}
+			catch(IOException e){
+				throw new IllegalStateException("Cannot read opening book resource "+DEFAULT_RESOURCE,e);
+			}
+		}
+		return defaultBook;
+	}
+
+	/**
+	 *	Get the number of positions in the book, counting one per symmetry class.
+	 *	@return The number of entries.
+	 */
+	public int size(){
+		return moves.size();
+	}
+
+	/**
+	 *	Adds a position to the book.
+	 *	@param computer	Cells of the computer (the side to move).
+	 *	@param human	Cells of the human.
+	 *	@param cells	Cells to play.
+	 *	@throws IllegalArgumentException If the position is already in the
+	 *			book with other moves, possibly as a rotation or reflection.
+	 */
+	public void add(int computer, int human, int cells){
+		int sym = Symmetry.canonical(computer,human);
+		int key = BitBoard.key(Symmetry.transform(sym,computer),Symmetry.transform(sym,human));
+		int stored = Symmetry.transform(sym,cells);
+		int previous = moves.get(key,stored);
+		if (previous!=stored)
+			throw new IllegalArgumentException("Position already in the book with other moves");
+		moves.put(key,stored);
+	}
+
+	/**
+	 *	Get the book moves of a position.
+	 *	@param computer	Cells of the computer (the side to move).
+	 *	@param human	Cells of the human.
+	 *	@return Mask of the vacant cells to play, 0 if the position is not
+	 *			in the book.
+	 */
+	public int getMoves(int computer, int human){
+		int sym = Symmetry.canonical(computer,human);
+		int key = BitBoard.key(Symmetry.transform(sym,computer),Symmetry.transform(sym,human));
+		int stored = moves.get(key,0);
+		return Symmetry.transform(Symmetry.inverse(sym),stored) & ~(computer|human);
+	}
+
+	/**
+	 *	Parses a book line: a 9 character pattern, blanks, and cell digits.
+	 */
+	private void parseLine(String line){
+		int split=0;
+		while (split<line.length() && !Character.isWhitespace(line.charAt(split))) split++;
+		String pattern = line.substring(0,split);
+		String cells = line.substring(split).trim();
+		if (pattern.length()!=BitBoard.SIZE) throw new IllegalArgumentException("Pattern must have 9 cells: "+pattern);
+		if (cells.length()==0) throw new IllegalArgumentException("No cell to play");
+
+		int computer=0, human=0;
+		for (int i=0; i<BitBoard.SIZE; i++){
+			switch(pattern.charAt(i)){
+			case 'C':	computer|=1<<i; break;
+			case 'H':	human|=1<<i; break;
+			case '.':	break;
+			default:	throw new IllegalArgumentException("Invalid cell '"+pattern.charAt(i)+"' in "+pattern);
+			}
+		}
+
+		int mask=0;
+		for (int i=0; i<cells.length(); i++){
+			int cell = cells.charAt(i)-'0';
+			if (cell<0 || cell>=BitBoard.SIZE) throw new IllegalArgumentException("Invalid cell to play: "+cells);
+			mask|=1<<cell;
+		}
+		if ((mask & (computer|human))!=0) throw new IllegalArgumentException("Cell to play is not vacant: "+line);
+		add(computer,human,mask);
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ *	Precomputed table of every reachable 3x3 position, holding the minimax
+ *	score and the optimal moves of the player to move. The table is solved
+ *	once when the class is loaded, so answering a move is a single lookup.
+ *
+ *	Positions are given from the point of view of the player to move
+ *	("mine" and "theirs" cell masks, see BitBoard) and are stored once per
+ *	symmetry class: a lookup reduces the position with Symmetry.canonical()
+ *	and maps the stored moves back to the actual board orientation.
+ *
+ *	Scores are positive for a win of the player to move, negative for a loss
+ *	and 0 for a draw. The magnitude is 1 + the number of vacant cells left
+ *	when the game ends, so faster wins and slower losses score higher.
+ */
+public final class PerfectPlayTable{
+
+	/** Score returned for positions not in the table. */
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	/** Offset added to scores to store them as unsigned bits. */
+	private static final int SCORE_OFFSET = 16;
+
+	/**
+	 *	Entries by canonical key (see BitBoard.key): optimal moves in the
+	 *	low 9 bits, score above.
+	 */
+	private static final IntMap entries;
+
+	static{
+		//solve all positions once, memoized on the raw 18-bit key
+		int solved[] = new int[1<<(2*BitBoard.SIZE)];
+		int count = solve(0,0,solved);
+
+		entries = new IntMap(count/Symmetry.COUNT);
+		for (int key=0; key<solved.length; key++){
+			if (solved[key]==0) continue;
+			int mine = key & BitBoard.FULL;
+			int theirs = key>>>BitBoard.SIZE;
+			int sym = Symmetry.canonical(mine,theirs);
+			if (sym!=Symmetry.IDENTITY) continue;	//only keep canonical forms
+			entries.put(key,solved[key]-1);
+		}
+	}
+
+	/**
+	 *	Not instantiable, all methods are static.
+	 */
+	private PerfectPlayTable(){
+	}
+
+	/**
+	 *	Solves a position by negamax, filling the memo with the entry + 1
+	 *	of every non terminal position reached (0 meaning not solved).
+	 *	@param mine		Cells of the player to move.
+	 *	@param theirs	Cells of the other player.
+	 *	@param solved	Memo indexed by BitBoard.key(mine,theirs).
+	 *	@return The number of new positions solved.
+	 */
+	private static int solve(int mine, int theirs, int solved[]){
+		int key = BitBoard.key(mine,theirs);
+		if (solved[key]!=0) return 0;
+
+		int count=1;
+		int vacant = ~(mine|theirs) & BitBoard.FULL;
+		int best = Integer.MIN_VALUE;
+		int moves = 0;
+		for (int i=0; i<BitBoard.SIZE; i++){
+			int bit = 1<<i;
+			if ((vacant & bit)==0) continue;
+
+			int score;
+			int next = mine|bit;
+			if (BitBoard.isWin(next))
+				score = 1+BitBoard.count(vacant & ~bit);
+			else if ((vacant & ~bit)==0)
+				score = 0;
+			else{
+				count += solve(theirs,next,solved);
+				score = -scoreOf(solved[BitBoard.key(theirs,next)]-1);
+			}
+
+			if (score>best){
+				best=score;
+				moves=bit;
+			}
+			else if (score==best) moves|=bit;
+		}
+		solved[key] = (moves | ((best+SCORE_OFFSET)<<BitBoard.SIZE))+1;
+		return count;
+	}
+
+	/**
+	 *	Extracts the score of an entry.
+	 *	@param entry	Table entry.
+	 *	@return The score.
+	 */
+	private static int scoreOf(int entry){
+		return (entry>>>BitBoard.SIZE)-SCORE_OFFSET;
+	}
+
+	/**
+	 *	Looks a position up, reduced to its canonical form.
+	 *	@param mine		Cells of the player to move.
+	 *	@param theirs	Cells of the other player.
+	 *	@param sym		Symmetry used to reduce the position.
+	 *	@return The entry, or -1 if the position is not in the table.
+	 */
+	private static int lookup(int mine, int theirs, int sym){
+		return entries.get(BitBoard.key(Symmetry.transform(sym,mine),Symmetry.transform(sym,theirs)),-1);
+	}
+
+	/**
+	 *	Get the optimal moves of the player to move.
+	 *	@param mine		Cells of the player to move.
+	 *	@param theirs	Cells of the other player.
+	 *	@return Mask of the cells that are optimal moves, 0 if the game is over
+	 *			or the position cannot be reached in a normal game.
+	 */
+	public static int getBestMoves(int mine, int theirs){
+		int sym = Symmetry.canonical(mine,theirs);
+		int entry = lookup(mine,theirs,sym);
+		if (entry<0) return 0;
+		return Symmetry.transform(Symmetry.inverse(sym),entry & BitBoard.FULL);
+	}
+
+	/**
+	 *	Get the minimax score of a position for the player to move.
+	 *	@param mine		Cells of the player to move.
+	 *	@param theirs	Cells of the other player.
+	 *	@return The score (see class comment), or UNKNOWN if the game is over
+	 *			or the position cannot be reached in a normal game.
+	 */
+	public static int getScore(int mine, int theirs){
+		int entry = lookup(mine,theirs,Symmetry.canonical(mine,theirs));
+		if (entry<0) return UNKNOWN;
+		return scoreOf(entry);
+	}
+
+	/**
+	 *	Get the number of positions stored in the table.
+	 *	@return The number of canonical positions.
+	 */
+	public static int size(){
+		return entries.size();
+	}
+}
@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *	Counts the game tree of TicTacToe from a position, as chess engines do
+ *	with "perft": every position reachable within a number of plies, and
+ *	the games ending at each ply by result. The moves are played with
+ *	makeMove()/undoMove() and the ends found with checkWin()/checkDraw(),
+ *	so known totals check the engine, and the nodes per second give one
+ *	speed figure to follow from release to release. From the empty board
+ *	to depth 9 the tree has 549946 nodes and 255168 games.
+ *
+ *	The subtrees a few plies down are counted in parallel.
+ *
+ *	The position is given by the cells played from the empty board, one
+ *	digit per move (row*3+col), for example "40" for the centre then the
+ *	top left corner.
+ *
+ *	Usage: java Perft [depth] [threads] [moves]
+ */
+public class Perft{
+
+	/** Counts per ply: nodes. */
+	public static final int NODES = 0;
+
+	/** Counts per ply: games won by "X". */
+	public static final int X_WINS = 1;
+
+	/** Counts per ply: games won by "O". */
+	public static final int O_WINS = 2;
+
+	/** Counts per ply: games drawn. */
+	public static final int DRAWS = 3;
+
+	/** Number of counts per ply. */
+	private static final int COUNTS = 4;
+
+	/** Plies below the start position at which the tree is split into tasks. */
+	private static final int SPLIT = 2;
+
+	/**
+	 *	Main program entry
+	 *	@param args	[depth] [threads] [moves]
+	 */
+	public static void main(String args[]) throws Exception {
+		int depth = args.length>0 ? Integer.parseInt(args[0]) : BitBoard.SIZE;
+		int threads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		TicTacToe game = new TicTacToe();
+		if (args.length>2) play(game,args[2]);
+
+		long start = System.nanoTime();
+		long counts[][] = count(game,depth,threads);
+		long elapsed = System.nanoTime()-start;
+		System.out.print(report(counts,elapsed));
+	}
+
+	/**
+	 *	Not instantiable, all methods are static.
+	 */
+	private Perft(){
+	}
+
+	/**
+	 *	Plays moves given as cell digits.
+	 *	@param game		The game.
+	 *	@param moves	One digit per move, row*3+col.
+	 *	@throws IllegalArgumentException If a move is not a vacant cell or
+	 *									 follows the end of the game.
+	 */
+	public static void play(TicTacToe game, String moves){
+		for (int i=0; i<moves.length(); i++){
+			int cell = moves.charAt(i)-'0';
+			if (cell<0 || cell>=BitBoard.SIZE) throw new IllegalArgumentException("Not a cell: "+moves.charAt(i));
+			if (game.checkWin() || game.checkDraw()) throw new IllegalArgumentException("Game over before move "+(i+1));
+			if (!game.makeMove(cell/3,cell%3)) throw new IllegalArgumentException("Cell "+cell+" is not vacant");
+		}
+	}
+
+	/**
+	 *	Counts the tree below a position.
+	 *	@param game		The position, not changed.
+	 *	@param depth	Plies counted below the position, at most the vacant cells.
+	 *	@param threads	Number of threads counting subtrees.
+	 *	@return Counts by ply from the position (0 being the position
+	 *			itself) then by NODES to DRAWS.
+	 */
+	public static long[][] count(TicTacToe game, int depth, int threads) throws Exception {
+		depth = Math.max(0,Math.min(depth,BitBoard.count(game.getPosition().getVacant())));
+		long counts[][] = new long[depth+1][COUNTS];
+		counts[0][NODES]=1;
+		if (game.checkWin() || game.checkDraw()) return counts;
+
+		//count the plies above the split here, collecting the positions below
+		List<TicTacToe> frontier = new ArrayList<TicTacToe>();
+		TicTacToe root = game.clone();
+		search(root,0,Math.min(depth,SPLIT),counts,frontier);
+		if (frontier.isEmpty()) return counts;
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1,threads));
+		try{
+			final int plies=depth, split = Math.min(depth,SPLIT);
+			List<Future<long[][]>> parts = new ArrayList<Future<long[][]>>();
+			for (final TicTacToe sub : frontier){
+				parts.add(pool.submit(() -> {
+					long part[][] = new long[plies+1][COUNTS];
+					search(sub,split,plies,part,null);
+					return part;
+				}));
+			}
+			for (Future<long[][]> part : parts){
+				long c[][] = part.get();
+				for (int ply=0; ply<=depth; ply++){
+					for (int i=0; i<COUNTS; i++) counts[ply][i]+=c[ply][i];
+				}
+			}
+			return counts;
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 *	Counts the tree below a position that is not over.
+	 *	@param game		The position, restored on return.
+	 *	@param ply		Plies from the start position.
+	 *	@param depth	Ply at which to stop.
+	 *	@param counts	Receives the counts by ply.
+	 *	@param frontier	Receives copies of the positions at the depth
+	 *					that are not over, null to drop them.
+	 */
+	private static void search(TicTacToe game, int ply, int depth, long counts[][], List<TicTacToe> frontier){
+		if (ply==depth){
+			if (frontier!=null) frontier.add(game.clone());
+			return;
+		}
+		boolean xMoves = game.getPosition().isXToMove();
+		long at[] = counts[ply+1];
+		for (int bits=game.getPosition().getVacant(); bits!=0; bits&=bits-1){
+			int cell = Integer.numberOfTrailingZeros(bits);
+			game.makeMove(cell/3,cell%3);
+			at[NODES]++;
+			if (game.checkWin()) at[xMoves ? X_WINS : O_WINS]++;
+			else if (game.checkDraw()) at[DRAWS]++;
+			else search(game,ply+1,depth,counts,frontier);
+			game.undoMove();
+		}
+	}
+
+	/**
+	 *	Formats counts as a table, one line per ply then the totals.
+	 *	@param counts	Counts by ply, as returned by count().
+	 *	@param elapsed	Time taken to count, in nanoseconds.
+	 *	@return The report.
+	 */
+	public static String report(long counts[][], long elapsed){
+		StringBuilder sb = new StringBuilder();
+		long total[] = new long[COUNTS];
+		sb.append(String.format("%5s %10s %10s %10s %10s%n","Ply","Nodes","X wins","O wins","Draws"));
+		for (int ply=0; ply<counts.length; ply++){
+			long c[] = counts[ply];
+			sb.append(String.format("%5d %10d %10d %10d %10d%n",ply,c[NODES],c[X_WINS],c[O_WINS],c[DRAWS]));
+			for (int i=0; i<COUNTS; i++) total[i]+=c[i];
+		}
+		sb.append(String.format("%5s %10d %10d %10d %10d%n","Total",total[NODES],total[X_WINS],total[O_WINS],total[DRAWS]));
+		double seconds = elapsed/1e9;
+		sb.append("Games: ").append(total[X_WINS]+total[O_WINS]+total[DRAWS]).append('\n');
+		sb.append("Time: ").append(String.format("%.3f",seconds)).append(" s, ")
+			.append(String.format("%.0f",seconds>0 ? total[NODES]/seconds : 0)).append(" nodes/s\n");
+		return sb.toString();
+	}
+}
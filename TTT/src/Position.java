@@ -0,0 +1,230 @@
+/**
+ *	Immutable TicTacToe position: the cells of both symbols and the symbol
+ *	to move, packed in one int. Moves return a new Position and every
+ *	method is a pure function of the position, so positions can be shared
+ *	and analysed by any number of threads without locking or copying.
+ *
+ *	Cells are numbered row*3+col, as in BitBoard.
+ */
+public final class Position{
+
+	/** The empty board, "X" to move. */
+	public static final Position EMPTY = new Position(0);
+
+	/** Bit of the packed value set when "O" is to move. */
+	private static final int O_TO_MOVE = 1<<18;
+
+	/** Cells of "X" (bits 0-8), of "O" (bits 9-17) and O_TO_MOVE. */
+	private final int packed;
+
+	private Position(int packed){
+		this.packed=packed;
+	}
+
+	/**
+	 *	Get the position holding the given cells.
+	 *	@param xBits	Cells of "X".
+	 *	@param oBits	Cells of "O", not overlapping xBits.
+	 *	@param xToMove	Whether "X" is to move.
+	 *	@return The position.
+	 *	@throws IllegalArgumentException if the masks overlap or are out of the board.
+	 */
+	public static Position of(int xBits, int oBits, boolean xToMove){
+		if (((xBits|oBits) & ~BitBoard.FULL)!=0 || (xBits & oBits)!=0){
+			throw new IllegalArgumentException("Invalid cells: " + xBits + ", " + oBits);
+		}
+		return new Position(BitBoard.key(xBits,oBits) | (xToMove ? 0 : O_TO_MOVE));
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Accessor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the cells taken by "X".
+	 *	@return Bitmask of the cells.
+	 */
+	public int getXBits(){
+		return packed & BitBoard.FULL;
+	}
+
+	/**
+	 *	Get the cells taken by "O".
+	 *	@return Bitmask of the cells.
+	 */
+	public int getOBits(){
+		return (packed>>>BitBoard.SIZE) & BitBoard.FULL;
+	}
+
+	/**
+	 *	Get whether "X" is the symbol to move.
+	 *	@return Whether "X" moves next.
+	 */
+	public boolean isXToMove(){
+		return (packed & O_TO_MOVE)==0;
+	}
+
+	/**
+	 *	Get the cells of the symbol to move.
+	 *	@return Bitmask of the cells.
+	 */
+	public int getMine(){
+		return isXToMove() ? getXBits() : getOBits();
+	}
+
+	/**
+	 *	Get the cells of the symbol that moved last.
+	 *	@return Bitmask of the cells.
+	 */
+	public int getTheirs(){
+		return isXToMove() ? getOBits() : getXBits();
+	}
+
+	/**
+	 *	Get the board key of the position, the symbol to move left out.
+	 *	@return The key (see BitBoard.key).
+	 */
+	public int getKey(){
+		return packed & ~O_TO_MOVE;
+	}
+
+	/**
+	 *	Get the vacant cells.
+	 *	@return Bitmask of the cells.
+	 */
+	public int getVacant(){
+		return BitBoard.FULL & ~(getXBits()|getOBits());
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Plays the symbol to move on a cell.
+	 *	@param cell The cell (row*3+col), must be vacant.
+	 *	@return The position after the move, the other symbol to move.
+	 *	@throws IllegalArgumentException if the cell is not vacant.
+	 */
+	public Position play(int cell){
+		if (cell<0 || cell>=BitBoard.SIZE || (getVacant() & (1<<cell))==0){
+			throw new IllegalArgumentException("Cell not vacant: " + cell);
+		}
+		int bit = isXToMove() ? 1<<cell : 1<<(cell+BitBoard.SIZE);
+		return new Position((packed | bit) ^ O_TO_MOVE);
+	}
+
+	/**
+	 *	Get the position with the given symbol to move.
+	 *	@param xToMove Whether "X" is to move.
+	 *	@return The position, this one if the symbol is unchanged.
+	 */
+	public Position withXToMove(boolean xToMove){
+		if (xToMove==isXToMove()) return this;
+		return new Position(packed ^ O_TO_MOVE);
+	}
+
+	/**
+	 *	Get the position with a cell changed.
+	 *	@param cell		The cell (row*3+col).
+	 *	@param symbol	Either "X", "O" or " " to clear the cell.
+	 *	@return The position, this one for any other symbol.
+	 */
+	public Position withCell(int cell, String symbol){
+		int cleared = packed & ~(1<<cell | 1<<(cell+BitBoard.SIZE));
+		if (symbol.equals("X")) return new Position(cleared | 1<<cell);
+		if (symbol.equals("O")) return new Position(cleared | 1<<(cell+BitBoard.SIZE));
+		if (symbol.equals(" ")) return new Position(cleared);
+		return this;
+	}
+
+	/**
+	 *	Get whether either symbol holds a complete line.
+	 *	@return Whether the game is won.
+	 */
+	public boolean isWin(){
+		return BitBoard.isWin(getXBits()) || BitBoard.isWin(getOBits());
+	}
+
+	/**
+	 *	Get whether the board is full and nobody won.
+	 *	@return Whether the game is drawn.
+	 */
+	public boolean isDraw(){
+		return getVacant()==0 && !isWin();
+	}
+
+	/**
+	 *	Get the cells where the symbol to move completes a line.
+	 *	@return Bitmask of the cells, 0 if none.
+	 */
+	public int getWinningMoves(){
+		return completingCells(getMine());
+	}
+
+	/**
+	 *	Get the cells where the symbol that moved last would complete a
+	 *	line, the ones the symbol to move has to block.
+	 *	@return Bitmask of the cells, 0 if none.
+	 */
+	public int getBlockingMoves(){
+		return completingCells(getTheirs());
+	}
+
+	/**
+	 *	Get the optimal moves of the symbol to move (see PerfectPlayTable).
+	 *	@return Bitmask of the moves, 0 if the game is over or the position
+	 *			cannot be reached.
+	 */
+	public int getBestMoves(){
+		return PerfectPlayTable.getBestMoves(getMine(),getTheirs());
+	}
+
+	/**
+	 *	Get the value of the position for the symbol to move under perfect
+	 *	play (see PerfectPlayTable).
+	 *	@return The score, PerfectPlayTable.UNKNOWN if unreachable.
+	 */
+	public int getScore(){
+		return PerfectPlayTable.getScore(getMine(),getTheirs());
+	}
+
+	/**
+	 *	Get the vacant cells completing a line of the given cells.
+	 */
+	private int completingCells(int cells){
+		int vacant = getVacant();
+		int found=0;
+		for (int bits=vacant; bits!=0; bits&=bits-1){
+			int bit = bits & -bits;
+			if (BitBoard.isWin(cells|bit)) found|=bit;
+		}
+		return found;
+	}
+
+	public boolean equals(Object other){
+		return other instanceof Position && ((Position)other).packed==packed;
+	}
+
+	public int hashCode(){
+		return packed;
+	}
+
+	/**
+	 *	Formats the position like the opening book patterns: the cells left
+	 *	to right, top to bottom, then the symbol to move.
+	 */
+	public String toString(){
+		char cells[] = new char[BitBoard.SIZE+2];
+		for (int i=0; i<BitBoard.SIZE; i++){
+			if ((getXBits() & (1<<i))!=0) cells[i]='X';
+			else if ((getOBits() & (1<<i))!=0) cells[i]='O';
+			else cells[i]='.';
+		}
+		cells[BitBoard.SIZE]=' ';
+		cells[BitBoard.SIZE+1] = isXToMove() ? 'X' : 'O';
+		return new String(cells);
+	}
+}
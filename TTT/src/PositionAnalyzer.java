@@ -0,0 +1,197 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *	Scores every legal move of a stream of positions under perfect play,
+ *	for hints and post-game reviews.
+ *
+ *	Each input line is a position in the encoding of TicTacToe.getPattern():
+ *	9 characters read left to right, top to bottom, 'C' for the player to
+ *	move, 'H' for the other player and '.' (or 'V') for a vacant cell. Each output
+ *	line repeats the position, a tab, then every legal move as cell:result
+ *	and the plies to the end of the game, for example "4:W3" (cell 4 wins
+ *	in 3 plies), "0:D8" or "1:L4". Positions that are over are followed by
+ *	"over", lines that are not positions by "invalid".
+ *
+ *	Moves are scored from the PerfectPlayTable; positions that cannot
+ *	happen in a normal game are searched instead. Lines are analysed in
+ *	batches on a thread pool and written in input order.
+ *
+ *	Usage: java PositionAnalyzer [threads] [file]
+ */
+public class PositionAnalyzer{
+
+	/** Lines analysed by one task. */
+	private static final int BATCH = 4096;
+
+	/**
+	 *	Main program entry: analyses a file, or the standard input, to the
+	 *	standard output.
+	 *	@param args	[threads] [file]
+	 */
+	public static void main(String args[]) throws Exception {
+		int threads = args.length>0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		BufferedReader in = new BufferedReader(args.length>1 ? new FileReader(args[1]) : new InputStreamReader(System.in),1<<16);
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out,"US-ASCII"),1<<16);
+		long start = System.nanoTime();
+		long lines = analyze(in,out,threads);
+		in.close();
+		double seconds = (System.nanoTime()-start)/1e9;
+		System.err.println(lines + " positions in " + String.format("%.3f",seconds) + " s, "
+			+ String.format("%.0f",seconds>0 ? lines/seconds : 0) + " positions/s");
+	}
+
+	/**
+	 *	Not instantiable, all methods are static.
+	 */
+	private PositionAnalyzer(){
+	}
+
+	/**
+	 *	Analyses every line of a stream.
+	 *	@param in		Positions, one per line.
+	 *	@param out		Receives the analyses in input order, flushed at the end.
+	 *	@param threads	Number of threads analysing batches of lines.
+	 *	@return The number of lines analysed.
+	 */
+	public static long analyze(BufferedReader in, Writer out, int threads) throws Exception {
+		threads = Math.max(1,threads);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try{
+			//batches being analysed, oldest first; bounded to keep memory flat
+			Queue<Future<String>> pending = new ArrayDeque<Future<String>>();
+			long count=0;
+			while (true){
+				final List<String> batch = new ArrayList<String>(BATCH);
+				String line;
+				while (batch.size()<BATCH && (line=in.readLine())!=null) batch.add(line);
+				if (batch.isEmpty()) break;
+				count+=batch.size();
+
+				pending.add(pool.submit(() -> analyzeBatch(batch)));
+				if (pending.size()>2*threads) out.write(pending.poll().get());
+			}
+			while (!pending.isEmpty()) out.write(pending.poll().get());
+			out.flush();
+			return count;
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 *	Analyses lines into one block of output lines.
+	 */
+	private static String analyzeBatch(List<String> lines){
+		StringBuilder sb = new StringBuilder(lines.size()*48);
+		for (String line : lines){
+			appendAnalysis(sb,line);
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 *	Analyses a position.
+	 *	@param pattern The position, see the class comment.
+	 *	@return The output line, without line separator.
+	 */
+	public static String analyze(String pattern){
+		StringBuilder sb = new StringBuilder(48);
+		appendAnalysis(sb,pattern);
+		return sb.toString();
+	}
+
+	/**
+	 *	Appends the analysis line of a position to a buffer.
+	 */
+	private static void appendAnalysis(StringBuilder sb, String pattern){
+		sb.append(pattern).append('\t');
+		int mine=0, theirs=0;
+		if (pattern.length()!=BitBoard.SIZE){
+			sb.append("invalid");
+			return;
+		}
+		for (int i=0; i<BitBoard.SIZE; i++){
+			char c = pattern.charAt(i);
+			if (c=='C') mine|=1<<i;
+			else if (c=='H') theirs|=1<<i;
+			else if (c!='.' && c!='V'){
+				sb.append("invalid");
+				return;
+			}
+		}
+		int vacant = BitBoard.FULL & ~(mine|theirs);
+		if (vacant==0 || BitBoard.isWin(mine) || BitBoard.isWin(theirs)){
+			sb.append("over");
+			return;
+		}
+
+		int empties = BitBoard.count(vacant);
+		boolean first=true;
+		for (int cell=0; cell<BitBoard.SIZE; cell++){
+			if ((vacant & (1<<cell))==0) continue;
+			int score = scoreMove(mine,theirs,cell);
+			if (!first) sb.append(' ');
+			first=false;
+			sb.append(cell).append(':');
+			if (score==0) sb.append('D').append(empties);
+			else sb.append(score>0 ? 'W' : 'L').append(empties-(Math.abs(score)-1));
+		}
+	}
+
+	/**
+	 *	Scores a move under perfect play, as PerfectPlayTable scores
+	 *	positions: positive for a win of the player making it, negative for
+	 *	a loss, 0 for a draw, the magnitude being 1 + the number of vacant
+	 *	cells left when the game ends.
+	 *	@param mine		Cells of the player to move.
+	 *	@param theirs	Cells of the other player.
+	 *	@param cell		The move, a vacant cell (row*3+col).
+	 *	@return The score.
+	 */
+	public static int scoreMove(int mine, int theirs, int cell){
+		int bit = 1<<cell;
+		int next = mine|bit;
+		int left = BitBoard.FULL & ~(next|theirs);
+		if (BitBoard.isWin(next)) return 1+BitBoard.count(left);
+		if (left==0) return 0;
+		int s = PerfectPlayTable.getScore(theirs,next);
+		if (s==PerfectPlayTable.UNKNOWN) s = search(theirs,next);
+		return -s;
+	}
+
+	/**
+	 *	Scores a position that is not in the PerfectPlayTable by negamax.
+	 *	@param mine		Cells of the player to move.
+	 *	@param theirs	Cells of the other player.
+	 *	@return The score for the player to move.
+	 */
+	private static int search(int mine, int theirs){
+		int best = Integer.MIN_VALUE;
+		int vacant = BitBoard.FULL & ~(mine|theirs);
+		for (int bits=vacant; bits!=0; bits&=bits-1){
+			int cell = Integer.numberOfTrailingZeros(bits);
+			int next = mine | 1<<cell;
+			int left = vacant & ~(1<<cell);
+			int s;
+			if (BitBoard.isWin(next)) s = 1+BitBoard.count(left);
+			else if (left==0) s = 0;
+			else s = -search(theirs,next);
+			if (s>best) best=s;
+		}
+		return best;
+	}
+}
@@ -0,0 +1,51 @@
+import java.util.SplittableRandom;
+
+/**
+ *	Source of the random choices of a game. TicTacToe draws them through
+ *	this interface instead of SplittableRandom, so that the engine also
+ *	runs where that class is missing, such as in JavaScript compiled by
+ *	TeaVM. On the JVM, of() gives the SplittableRandom streams.
+ */
+public interface RandomSource{
+
+	/**
+	 *	Get a random number.
+	 *	@param bound Upper bound, positive.
+	 *	@return A number from 0 (inclusive) to bound (exclusive).
+	 */
+	int nextInt(int bound);
+
+	/**
+	 *	Get a random number.
+	 *	@return Any long.
+	 */
+	long nextLong();
+
+	/**
+	 *	Get a new source, independent from this one and drawn from it, for
+	 *	a copy of the game.
+	 *	@return The new source.
+	 */
+	RandomSource split();
+
+	/**
+	 *	Get a source drawing from a SplittableRandom.
+	 *	@param random The stream, not to be used elsewhere.
+	 *	@return The source.
+	 */
+	static RandomSource of(final SplittableRandom random){
+		return new RandomSource(){
+			public int nextInt(int bound){
+				return random.nextInt(bound);
+			}
+
+			public long nextLong(){
+				return random.nextLong();
+			}
+
+			public RandomSource split(){
+				return of(random.split());
+			}
+		};
+	}
+}
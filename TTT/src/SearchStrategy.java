@@ -0,0 +1,39 @@
+/**
+ *	Difficulty level 4: searches the position with the alpha-beta searcher
+ *	of the m,n,k game, playing TicTacToe as the 3,3,3 game.
+ */
+public class SearchStrategy implements Strategy{
+
+	/** Time budget of a move in milliseconds. */
+	private static final long TIME_LIMIT = 500;
+
+	/** Transposition table entries, enough for all 3x3 positions. */
+	private static final int TABLE_SIZE = 1<<13;
+
+	/** The searcher, created on first use. */
+	private MnkSearch searcher;
+
+	/** Board searched, reused between moves. */
+	private MnkBoard board;
+
+	public int findMove(TicTacToe game){
+		if (searcher==null) searcher = new MnkSearch(TIME_LIMIT,TABLE_SIZE);
+		if (board==null) board = new MnkBoard(3,3,3);
+
+		Position position = game.getPosition();
+		for (int i=0; i<BitBoard.SIZE; i++){
+			if ((position.getXBits() & (1<<i))!=0) board.setCell(i,MnkBoard.FIRST);
+			else if ((position.getOBits() & (1<<i))!=0) board.setCell(i,MnkBoard.SECOND);
+			else board.setCell(i,MnkBoard.NONE);
+		}
+		board.setCurrentPlayer(position.isXToMove() ? MnkBoard.FIRST : MnkBoard.SECOND);
+		return searcher.findMove(board);
+	}
+
+	public long getPositions(){
+		return searcher!=null ? searcher.getNodes() : 0;
+	}
+
+	public void reset(){
+	}
+}
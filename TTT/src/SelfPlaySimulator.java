@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *	Headless simulator playing TicTacToe games between two difficulty levels,
+ *	spread over several threads. Each game is reseeded from the base seed
+ *	and its number, so a run is reproducible whatever the thread count.
+ *	Level A starts the even games and level B the odd ones.
+ *
+ *	Engine metrics are printed after the results when run with
+ *	-Dttt.metrics=true, -Dttt.jfr=true also emits Flight Recorder events.
+ *
+ *	Usage: java SelfPlaySimulator levelA levelB [games] [threads] [seed]
+ */
+public class SelfPlaySimulator{
+
+	/** Difficulty level of the first player. */
+	private final int levelA;
+
+	/** Difficulty level of the second player. */
+	private final int levelB;
+
+	/** Number of threads playing games. */
+	private final int threads;
+
+	/** Seed the game seeds are derived from. */
+	private final long seed;
+
+	/**
+	 *	Main program entry
+	 *	@param args	levelA levelB [games] [threads] [seed]
+	 */
+	public static void main(String args[]) throws Exception {
+		if (args.length<2){
+			System.err.println("Usage: java SelfPlaySimulator levelA levelB [games] [threads] [seed]");
+			System.exit(1);
+		}
+		int levelA = Integer.parseInt(args[0]);
+		int levelB = Integer.parseInt(args[1]);
+		long games = args.length>2 ? Long.parseLong(args[2]) : 1000000;
+		int threads = args.length>3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length>4 ? Long.parseLong(args[4]) : System.currentTimeMillis();
+
+		System.out.println("Level " + levelA + " vs level " + levelB + ": " + games
+			+ " games on " + threads + " threads, seed " + seed);
+		EngineMetrics metrics = null;
+		if (Boolean.getBoolean("ttt.metrics") || Boolean.getBoolean("ttt.jfr")){
+			metrics = new EngineMetrics();
+			TicTacToe.setMonitor(Boolean.getBoolean("ttt.jfr") ? new JfrMonitor(metrics) : metrics);
+		}
+		Result result = new SelfPlaySimulator(levelA,levelB,threads,seed).run(games);
+		System.out.print(result.report());
+		if (metrics!=null) System.out.print(metrics.snapshot().report());
+	}
+
+	/**
+	 *	Creates a simulator.
+	 *	@param levelA	Difficulty level of the first player.
+	 *	@param levelB	Difficulty level of the second player.
+	 *	@param threads	Number of threads playing games.
+	 *	@param seed		Seed the game seeds are derived from.
+	 */
+	public SelfPlaySimulator(int levelA, int levelB, int threads, long seed){
+		this.levelA=levelA;
+		this.levelB=levelB;
+		this.threads=Math.max(1,threads);
+		this.seed=seed;
+	}
+
+	/**
+	 *	Plays games, each thread taking an equal share of the game numbers.
+	 *	@param games Number of games to play.
+	 *	@return The merged results of all threads.
+	 */
+	public Result run(long games) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try{
+			long start = System.nanoTime();
+			List<Future<Result>> parts = new ArrayList<Future<Result>>();
+			for (int t=0; t<threads; t++){
+				final long from = games*t/threads;
+				final long to = games*(t+1)/threads;
+				parts.add(pool.submit(() -> play(from,to)));
+			}
+			Result result = new Result();
+			for (Future<Result> part : parts) result.add(part.get());
+			result.elapsed = System.nanoTime()-start;
+			return result;
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 *	Plays a range of games on one engine, reset and reseeded per game.
+	 *	@param from	First game number.
+	 *	@param to	Game number after the last one.
+	 *	@return The results of the range.
+	 */
+	private Result play(long from, long to){
+		Result result = new Result();
+		TicTacToe ttt = new TicTacToe();
+		for (long game=from; game<to; game++){
+			ttt.gameReset();
+			ttt.setSeed(mix(seed+game));
+			boolean aStarts = (game & 1)==0;
+
+			//the "player" side is level A
+			if (!aStarts) ttt.switchPlayer();
+			while (true){
+				boolean aToMove = ttt.isPlayerTurn();
+				ttt.setDifficulty(aToMove ? levelA : levelB);
+				long t0 = System.nanoTime();
+				ttt.computeMove();
+				(aToMove ? result.latencyA : result.latencyB).record(System.nanoTime()-t0);
+
+				if (ttt.checkWin()){
+					//the side that just moved won
+					if (aToMove) result.winsA++;
+					else result.winsB++;
+					break;
+				}
+				if (ttt.checkDraw()){
+					result.draws++;
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *	Scrambles a game number into a seed (SplitMix64 finalizer), so that
+	 *	consecutive games do not get correlated Random sequences.
+	 */
+	static long mix(long z){
+		z = (z ^ (z>>>30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z>>>27)) * 0x94D049BB133111EBL;
+		return z ^ (z>>>31);
+	}
+
+	/**
+	 *	Outcome counts and move latencies of a set of games.
+	 */
+	public static class Result{
+
+		/** Games won by level A. */
+		public long winsA;
+
+		/** Games won by level B. */
+		public long winsB;
+
+		/** Games drawn. */
+		public long draws;
+
+		/** Time taken to play the games, in nanoseconds. */
+		public long elapsed;
+
+		/** Latency of the moves of level A. */
+		public final LatencyHistogram latencyA = new LatencyHistogram();
+
+		/** Latency of the moves of level B. */
+		public final LatencyHistogram latencyB = new LatencyHistogram();
+
+		/**
+		 *	Get the number of games played.
+		 *	@return The game count.
+		 */
+		public long getGames(){
+			return winsA+winsB+draws;
+		}
+
+		/**
+		 *	Adds the counts of another result to this one.
+		 *	@param other The result to add.
+		 */
+		public void add(Result other){
+			winsA+=other.winsA;
+			winsB+=other.winsB;
+			draws+=other.draws;
+			latencyA.add(other.latencyA);
+			latencyB.add(other.latencyB);
+		}
+
+		/**
+		 *	Formats the result as text, rates given from level A's point of view.
+		 *	@return The report, one item per line.
+		 */
+		public String report(){
+			long games = getGames();
+			double seconds = elapsed/1e9;
+			StringBuilder sb = new StringBuilder();
+			sb.append("Games: ").append(games).append('\n');
+			sb.append("A wins: ").append(winsA).append(" (").append(percent(winsA,games)).append(")\n");
+			sb.append("Draws: ").append(draws).append(" (").append(percent(draws,games)).append(")\n");
+			sb.append("A losses: ").append(winsB).append(" (").append(percent(winsB,games)).append(")\n");
+			sb.append("Time: ").append(String.format("%.3f",seconds)).append(" s, ")
+				.append(String.format("%.0f",seconds>0 ? games/seconds : 0)).append(" games/s\n");
+			sb.append("A move latency: ").append(latencyA.summary()).append('\n');
+			sb.append("B move latency: ").append(latencyB.summary()).append('\n');
+			return sb.toString();
+		}
+
+		private static String percent(long n, long total){
+			return String.format("%.2f%%",total==0 ? 0 : 100.0*n/total);
+		}
+	}
+}
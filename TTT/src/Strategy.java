@@ -0,0 +1,28 @@
+/**
+ *	Computes the computer's moves of a difficulty level that needs more
+ *	than the engine core: a searcher, threads or a file. TicTacToe loads
+ *	these by name on first use (see TicTacToe.computeMove), so that code
+ *	which never plays such a level, such as JavaScript compiled by TeaVM,
+ *	does not link them. Implementations need a public no-argument
+ *	constructor.
+ */
+public interface Strategy{
+
+	/**
+	 *	Finds the move of the side to move.
+	 *	@param game The game, not changed.
+	 *	@return The cell (row*3+col), or -1 to play randomly instead.
+	 */
+	int findMove(TicTacToe game);
+
+	/**
+	 *	Get the number of positions examined by the last findMove().
+	 *	@return The position count.
+	 */
+	long getPositions();
+
+	/**
+	 *	Drops what was kept from the previous game. Called by gameReset().
+	 */
+	void reset();
+}
@@ -0,0 +1,103 @@
+/**
+ *	The 8 symmetries of the 3x3 grid (4 rotations and 4 reflections),
+ *	applied to the cell masks of BitBoard. Used to reduce a position to
+ *	a canonical form so that all its rotated or reflected variants share
+ *	the same table entry.
+ */
+public final class Symmetry{
+
+	/** Number of symmetries of the grid. */
+	public static final int COUNT = 8;
+
+	/** The identity symmetry. */
+	public static final int IDENTITY = 0;
+
+	/**
+	 *	For each symmetry, the cell each cell is moved to. Cells are
+	 *	numbered as in BitBoard:
+	 *	identity, rotate 90, rotate 180, rotate 270,
+	 *	mirror left/right, mirror top/bottom, transpose, anti-transpose.
+	 */
+	private static final int CELLS[][] = {
+		{0,1,2, 3,4,5, 6,7,8},
+		{2,5,8, 1,4,7, 0,3,6},
+		{8,7,6, 5,4,3, 2,1,0},
+		{6,3,0, 7,4,1, 8,5,2},
+		{2,1,0, 5,4,3, 8,7,6},
+		{6,7,8, 3,4,5, 0,1,2},
+		{0,3,6, 1,4,7, 2,5,8},
+		{8,5,2, 7,4,1, 6,3,0}
+	};
+
+	/** For each symmetry, the symmetry that undoes it. */
+	private static final int INVERSE[] = new int[COUNT];
+
+	/** For each symmetry, the transformed value of all 512 masks. */
+	private static final short MASKS[][] = new short[COUNT][BitBoard.FULL+1];
+
+	static{
+		for (int s=0; s<COUNT; s++){
+			for (int mask=0; mask<=BitBoard.FULL; mask++){
+				int t=0;
+				for (int i=0; i<BitBoard.SIZE; i++){
+					if ((mask & (1<<i))!=0) t|=1<<CELLS[s][i];
+				}
+				MASKS[s][mask]=(short)t;
+			}
+		}
+		for (int s=0; s<COUNT; s++){
+			for (int u=0; u<COUNT; u++){
+				boolean undoes=true;
+				for (int i=0; i<BitBoard.SIZE; i++){
+					if (CELLS[u][CELLS[s][i]]!=i) undoes=false;
+				}
+				if (undoes) INVERSE[s]=u;
+			}
+		}
+	}
+
+	/**
+	 *	Not instantiable, all methods are static.
+	 */
+	private Symmetry(){
+	}
+
+	/**
+	 *	Applies a symmetry to a cell mask.
+	 *	@param sym	The symmetry (0 to 7).
+	 *	@param mask	The cell mask.
+	 *	@return The transformed mask.
+	 */
+	public static int transform(int sym, int mask){
+		return MASKS[sym][mask & BitBoard.FULL];
+	}
+
+	/**
+	 *	Get the symmetry undoing the specified one.
+	 *	@param sym	The symmetry (0 to 7).
+	 *	@return The inverse symmetry.
+	 */
+	public static int inverse(int sym){
+		return INVERSE[sym];
+	}
+
+	/**
+	 *	Finds the symmetry giving the smallest key for a pair of cell masks.
+	 *	The key is built as BitBoard.key(first,second) on the transformed masks.
+	 *	@param first	Cells of the first symbol.
+	 *	@param second	Cells of the second symbol.
+	 *	@return The symmetry to apply to get the canonical form.
+	 */
+	public static int canonical(int first, int second){
+		int best=IDENTITY;
+		int bestKey=BitBoard.key(first,second);
+		for (int s=1; s<COUNT; s++){
+			int key=BitBoard.key(transform(s,first),transform(s,second));
+			if (key<bestKey){
+				bestKey=key;
+				best=s;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,453 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *	Solved 4x4 m,n,k games: one byte per position giving its value for
+ *	the player to move under perfect play, with the number of plies to the
+ *	end of the game.
+ *
+ *	Positions are numbered in base 3, cell i (row*4+col) being the digit
+ *	of weight 3^i: 0 vacant, 1 first player, 2 second player, so there are
+ *	3^16 of them. The player to move follows from the stone counts.
+ *
+ *	The table is built by retrograde analysis: every move adds a stone,
+ *	so the positions are solved from the full boards back to the empty
+ *	one, a layer of positions with the same stone count at a time. The
+ *	positions of a layer only depend on the layer above, so each layer is
+ *	split into ranges solved in parallel.
+ *
+ *	Generated tables are written to a file that the engine maps in memory
+ *	when a 4x4 board is first searched (see forBoard), so lookups cost no
+ *	heap and no startup time.
+ *
+ *	Usage: java Tablebase k [threads] [directory]
+ */
+public class Tablebase{
+
+	/** Rows and columns of the boards covered. */
+	public static final int ROWS=4, COLS=4;
+
+	/** Number of cells. */
+	public static final int SIZE = ROWS*COLS;
+
+	/** Number of positions, 3^SIZE. */
+	public static final int POSITIONS = 43046721;
+
+	/** Values: high bits of the byte give the result, the low bits the plies to the end. */
+	public static final int WIN=0x40, LOSS=0x80, DRAW=0xC0;
+
+	/** Value of positions that cannot happen in a game. */
+	public static final int INVALID = 0;
+
+	/** Masks of the result and distance parts of a value. */
+	private static final int RESULT_MASK=0xC0, DISTANCE_MASK=0x3F;
+
+	/** "TTTB", first int of a table file. */
+	private static final int MAGIC = 0x54545442;
+
+	/** Version of the file format. */
+	private static final int VERSION = 1;
+
+	/** Size of the file header: magic, version, rows, cols, k, padding. */
+	private static final int HEADER_SIZE = 16;
+
+	/** Number of cells of a half board. */
+	private static final int HALF = SIZE/2;
+
+	/** 3^HALF, the positions of a half board. */
+	private static final int HALF_POSITIONS = 6561;
+
+	/** Powers of 3, weight of each cell in a position number. */
+	private static final int POW3[] = new int[SIZE];
+
+	/** Cells of the first and second player per half board position. */
+	private static final int FIRST_HALF[] = new int[HALF_POSITIONS], SECOND_HALF[] = new int[HALF_POSITIONS];
+
+	static{
+		POW3[0]=1;
+		for (int i=1; i<SIZE; i++) POW3[i]=POW3[i-1]*3;
+		for (int p=0; p<HALF_POSITIONS; p++){
+			for (int i=0, n=p; i<HALF; i++, n/=3){
+				if (n%3==1) FIRST_HALF[p]|=1<<i;
+				else if (n%3==2) SECOND_HALF[p]|=1<<i;
+			}
+		}
+	}
+
+	/** Tables found by forBoard, by k. */
+	private static final Tablebase loaded[] = new Tablebase[SIZE+1];
+
+	/** Whether forBoard already looked for the table of a k. */
+	private static final boolean searched[] = new boolean[SIZE+1];
+
+	/** Stones in a row needed to win. */
+	private final int k;
+
+	/** The values, from base on. */
+	private final ByteBuffer data;
+
+	/** Offset of the value of position 0 in data. */
+	private final int base;
+
+	/**
+	 *	Main program entry: generates a table and writes it to its file.
+	 *	@param args	k [threads] [directory]
+	 */
+	public static void main(String args[]) throws Exception {
+		if (args.length<1){
+			System.err.println("Usage: java Tablebase k [threads] [directory]");
+			System.exit(1);
+		}
+		int k = Integer.parseInt(args[0]);
+		int threads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		File dir = new File(args.length>2 ? args[2] : getDirectory());
+
+		long start = System.nanoTime();
+		Tablebase tb = generate(k,threads);
+		File file = new File(dir,fileName(k));
+		tb.write(file);
+		System.out.println("4x4 k=" + k + " solved in " + (System.nanoTime()-start)/1000000 + " ms on "
+			+ threads + " threads, written to " + file);
+		System.out.println("Empty board: " + describe(tb.probe(0)));
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	private Tablebase(int k, ByteBuffer data, int base){
+		this.k=k;
+		this.data=data;
+		this.base=base;
+	}
+
+	/**
+	 *	Solves every position of the 4x4 game.
+	 *	@param k		Stones in a row needed to win, from 1 to 4.
+	 *	@param threads	Number of threads solving a layer.
+	 *	@return The table, held in the heap.
+	 */
+	public static Tablebase generate(final int k, int threads) throws Exception {
+		if (k<1 || k>ROWS) throw new IllegalArgumentException("k must be 1 to " + ROWS + ": " + k);
+		final boolean wins[] = winTable(k);
+		final byte values[] = new byte[POSITIONS];
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1,threads));
+		try{
+			int chunks = Math.max(1,threads)*8;
+			for (int stones=SIZE; stones>=0; stones--){
+				final int layer = stones;
+				List<Future<?>> parts = new ArrayList<Future<?>>();
+				for (int c=0; c<chunks; c++){
+					final int from = (int)((long)POSITIONS*c/chunks);
+					final int to = (int)((long)POSITIONS*(c+1)/chunks);
+					parts.add(pool.submit(() -> solveRange(values,wins,layer,from,to)));
+				}
+				for (Future<?> part : parts) part.get();
+			}
+		}
+		finally{
+			pool.shutdown();
+		}
+		return new Tablebase(k,ByteBuffer.wrap(values),0);
+	}
+
+	/**
+	 *	Maps a table file in memory.
+	 *	@param file The file written by write().
+	 *	@return The table.
+	 *	@throws IOException if the file cannot be read or is not a 4x4 table.
+	 */
+	public static Tablebase load(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file,"r");
+		try{
+			if (raf.length()!=HEADER_SIZE+(long)POSITIONS) throw new IOException("Not a 4x4 tablebase: " + file);
+			ByteBuffer data = raf.getChannel().map(FileChannel.MapMode.READ_ONLY,0,raf.length());
+			if (data.getInt(0)!=MAGIC || data.getInt(4)!=VERSION || data.get(8)!=ROWS || data.get(9)!=COLS){
+				throw new IOException("Not a 4x4 tablebase: " + file);
+			}
+			return new Tablebase(data.get(10),data,HEADER_SIZE);
+		}
+		finally{
+			//the mapping stays valid once the file is closed
+			raf.close();
+		}
+	}
+
+	/**
+	 *	Get the table of a board, mapping its file on first use. Files are
+	 *	looked for in the directory of the "ttt.tablebase.dir" property,
+	 *	the current directory by default.
+	 *	@param rows	Rows of the board.
+	 *	@param cols	Columns of the board.
+	 *	@param k	Stones in a row needed to win.
+	 *	@return The table, null if the board is not 4x4 or its file is missing.
+	 */
+	public static synchronized Tablebase forBoard(int rows, int cols, int k){
+		if (rows!=ROWS || cols!=COLS || k<1 || k>SIZE) return null;
+		if (!searched[k]){
+			searched[k]=true;
+			File file = new File(getDirectory(),fileName(k));
+			if (file.exists()){
+				try{
+					loaded[k] = load(file);
+				}
+				catch (IOException e){
+					System.err.println("Tablebase not loaded: " + e.getMessage());
+				}
+			}
+		}
+		return loaded[k];
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Accessor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the number of stones in a row needed to win.
+	 *	@return k.
+	 */
+	public int getK(){
+		return k;
+	}
+
+	/**
+	 *	Get the name of the file of a table.
+	 *	@param k Stones in a row needed to win.
+	 *	@return The file name.
+	 */
+	public static String fileName(int k){
+		return "tablebase4x4k" + k + ".bin";
+	}
+
+	/**
+	 *	Get the directory forBoard looks for table files in.
+	 *	@return The directory name.
+	 */
+	public static String getDirectory(){
+		return System.getProperty("ttt.tablebase.dir",".");
+	}
+
+	/**
+	 *	Get the result part of a value.
+	 *	@param value The value.
+	 *	@return WIN, LOSS, DRAW or INVALID.
+	 */
+	public static int resultOf(int value){
+		return value & RESULT_MASK;
+	}
+
+	/**
+	 *	Get the distance part of a value.
+	 *	@param value The value.
+	 *	@return Plies to the end of the game under perfect play.
+	 */
+	public static int distanceOf(int value){
+		return value & DISTANCE_MASK;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the value of a position.
+	 *	@param position The position number, from 0 to POSITIONS-1.
+	 *	@return The value, INVALID if the position cannot happen.
+	 */
+	public int probe(int position){
+		return data.get(base+position) & 0xFF;
+	}
+
+	/**
+	 *	Get the position number of a board.
+	 *	@param board A 4x4 board.
+	 *	@return The position number.
+	 */
+	public static int positionOf(MnkBoard board){
+		int p=0;
+		for (int i=SIZE-1; i>=0; i--) p = p*3+board.getCell(i);
+		return p;
+	}
+
+	/**
+	 *	Get the value of a board for its player to move.
+	 *	@param board A 4x4 board.
+	 *	@return The value, INVALID if the player to move does not match
+	 *			the stone counts or the position cannot happen.
+	 */
+	public int probe(MnkBoard board){
+		int p = positionOf(board);
+		if (board.getCurrentPlayer()!=playerToMove(p)) return INVALID;
+		return probe(p);
+	}
+
+	/**
+	 *	Finds a move keeping the best value: the fastest win, the slowest
+	 *	loss, or a draw.
+	 *	@param board A 4x4 board.
+	 *	@return The cell index of the move, -1 if the game is over or the
+	 *			position is not in the table.
+	 */
+	public int bestMove(MnkBoard board){
+		int p = positionOf(board);
+		int value = probe(board);
+		if (value==INVALID || distanceOf(value)==0) return -1;
+		int player = board.getCurrentPlayer();
+		int best=-1, bestScore=Integer.MIN_VALUE;
+		for (int i=0; i<SIZE; i++){
+			if (board.getCell(i)!=MnkBoard.NONE) continue;
+			int s = score(probe(p+player*POW3[i]));
+			if (s>bestScore){
+				bestScore=s;
+				best=i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 *	Writes the table to a file.
+	 *	@param file The file, replaced if it exists.
+	 */
+	public void write(File file) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).put((byte)ROWS).put((byte)COLS).put((byte)k);
+		header.clear();
+		ByteBuffer values = data.duplicate();
+		values.position(base).limit(base+POSITIONS);
+		FileOutputStream out = new FileOutputStream(file);
+		try{
+			FileChannel channel = out.getChannel();
+			while (header.hasRemaining()) channel.write(header);
+			while (values.hasRemaining()) channel.write(values);
+		}
+		finally{
+			out.close();
+		}
+	}
+
+	/**
+	 *	Solves the positions of a range having a given number of stones,
+	 *	the positions with one more stone being solved.
+	 */
+	private static void solveRange(byte values[], boolean wins[], int stones, int from, int to){
+		int hi = from/HALF_POSITIONS, lo = from%HALF_POSITIONS;
+		for (int p=from; p<to; p++){
+			int first = FIRST_HALF[lo] | FIRST_HALF[hi]<<HALF;
+			int second = SECOND_HALF[lo] | SECOND_HALF[hi]<<HALF;
+			if (Integer.bitCount(first|second)==stones) values[p]=(byte)solve(values,wins,p,first,second);
+			if (++lo==HALF_POSITIONS){
+				lo=0;
+				hi++;
+			}
+		}
+	}
+
+	/**
+	 *	Solves a position from the values of its moves.
+	 */
+	private static int solve(byte values[], boolean wins[], int p, int first, int second){
+		int firstCount = Integer.bitCount(first), secondCount = Integer.bitCount(second);
+		if (firstCount!=secondCount && firstCount!=secondCount+1) return INVALID;
+		boolean firstToMove = firstCount==secondCount;
+		int mine = firstToMove ? first : second;
+		int theirs = firstToMove ? second : first;
+		if (wins[mine]) return INVALID;	//the game ended before the last move
+		if (wins[theirs]) return LOSS;
+		int vacant = ((1<<SIZE)-1) & ~(first|second);
+		if (vacant==0) return DRAW;
+
+		int digit = firstToMove ? MnkBoard.FIRST : MnkBoard.SECOND;
+		int best=0, bestScore=Integer.MIN_VALUE;
+		for (int bits=vacant; bits!=0; bits&=bits-1){
+			int child = values[p+digit*POW3[Integer.numberOfTrailingZeros(bits)]] & 0xFF;
+			int s = score(child);
+			if (s>bestScore){
+				bestScore=s;
+				best=child;
+			}
+		}
+		//a move later for the other player is a move later for this one
+		int result = resultOf(best)==WIN ? LOSS : resultOf(best)==LOSS ? WIN : DRAW;
+		return result | (distanceOf(best)+1);
+	}
+
+	/**
+	 *	Ranks the value of a position reached by a move, from the point of
+	 *	view of the player who made it: a loss of the opponent is best,
+	 *	the sooner the better.
+	 */
+	private static int score(int value){
+		int d = distanceOf(value);
+		switch (resultOf(value)){
+		case LOSS:	return 100-d;
+		case WIN:	return d-100;
+		default:	return 0;
+		}
+	}
+
+	/**
+	 *	Get the player to move in a position, from its stone counts.
+	 */
+	private static int playerToMove(int p){
+		int lo = p%HALF_POSITIONS, hi = p/HALF_POSITIONS;
+		int first = Integer.bitCount(FIRST_HALF[lo] | FIRST_HALF[hi]<<HALF);
+		int second = Integer.bitCount(SECOND_HALF[lo] | SECOND_HALF[hi]<<HALF);
+		return first==second ? MnkBoard.FIRST : MnkBoard.SECOND;
+	}
+
+	/**
+	 *	Builds the table telling whether a set of cells holds k in a row.
+	 */
+	private static boolean[] winTable(int k){
+		List<Integer> lines = new ArrayList<Integer>();
+		int dirs[][] = {{0,1},{1,0},{1,1},{1,-1}};
+		for (int r=0; r<ROWS; r++){
+			for (int c=0; c<COLS; c++){
+				for (int d[] : dirs){
+					int endRow = r+d[0]*(k-1), endCol = c+d[1]*(k-1);
+					if (endRow<0 || endRow>=ROWS || endCol<0 || endCol>=COLS) continue;
+					int line=0;
+					for (int i=0; i<k; i++) line |= 1<<((r+d[0]*i)*COLS + c+d[1]*i);
+					lines.add(line);
+				}
+			}
+		}
+		boolean wins[] = new boolean[1<<SIZE];
+		for (int cells=0; cells<wins.length; cells++){
+			for (int line : lines){
+				if ((cells & line)==line){
+					wins[cells]=true;
+					break;
+				}
+			}
+		}
+		return wins;
+	}
+
+	/**
+	 *	Formats a value as text.
+	 */
+	static String describe(int value){
+		switch (resultOf(value)){
+		case WIN:	return "win in " + distanceOf(value) + " plies";
+		case LOSS:	return "loss in " + distanceOf(value) + " plies";
+		case DRAW:	return "draw";
+		default:	return "invalid";
+		}
+	}
+}
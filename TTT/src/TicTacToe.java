@@ -1,29 +1,58 @@
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.lang.Math;
 
 /**
  *	TicTacToe main game class.
- *	(In compliant with MIDP 2.0 and CLDC 1.0)
  */
 public class TicTacToe{
 
 	/** Whether it is the current player's turn or opposing player/computer. */
 	private boolean playerTurn;
 	
-	/** What is the current symbol to draw, either "O" or "X". */
-	private String currentSymbol;
+	/** The cells and the symbol to move, "X" or "O". */
+	private Position position = Position.EMPTY;
 
-	/** A 3x3 cell grid to map the playing board (3 rows, 3 columns). */
-	private String cell[][];
+	/** Set when the current symbol is " ": moves then place nothing. */
+	private boolean noSymbol;
 	
+	/** Cells played with makeMove/placeMove (row*3+col), in order. */
+	private int history[] = new int[BitBoard.SIZE];
+
+	/** Number of moves in the history. */
+	private int moveCount;
+
 	/** Determines the level of computation to be employed by the computer. */
 	private int difficulty;
 
-	/** A buffer variable to store the last pattern used in strategyPattern. */
-	private String lastPattern;
-	
-	/** Random object used to make random choices. */
-	Random rnd = new Random(System.currentTimeMillis());
+	/**
+	 *	Classes of the Strategy of each level, null for the levels played
+	 *	here. They are loaded by name so that the engine core does not link
+	 *	their searchers, threads and files.
+	 */
+	private static final String STRATEGIES[] = {
+		null, null, null, null, "SearchStrategy", "MctsStrategy", "LearnedStrategy"
+	};
+
+	/** Strategies loaded by this game, by level. */
+	private final Strategy strategies[] = new Strategy[STRATEGIES.length];
+
+	/** Playouts per Monte Carlo move, 0 for no limit. */
+	private int mctsPlayouts = MctsSearch.DEFAULT_PLAYOUTS;
+
+	/** Time budget of a Monte Carlo move in milliseconds, 0 for no limit. */
+	private long mctsTimeLimit;
+
+	/** Receives the measurements of all games, null when not monitored. */
+	private static volatile EngineMonitor monitor;
+
+	/** How the move being computed was found (see EngineMonitor). */
+	private int movePath;
+
+	/** Positions examined for the move being computed. */
+	private long movePositions;
+
+	/** Random stream of this game's choices, never shared with another game. */
+	private RandomSource rnd;
 
 
 	//--------------------------------------------------------------------------
@@ -34,10 +63,37 @@ public class TicTacToe{
 	 *	Default constructor, calls gameReset() during initialization.
 	 */
 	public TicTacToe(){
-		cell = new String[3][3];		
+		this(RandomSource.of(new SplittableRandom()));
+	}
+
+	/**
+	 *	Creates a game drawing its random choices from a given source, for
+	 *	platforms without SplittableRandom. Calls gameReset() during
+	 *	initialization.
+	 *	@param random The source, not to be shared with another game.
+	 */
+	public TicTacToe(RandomSource random){
+		rnd=random;
 		setDifficulty(0);
 		gameReset();
 	}
+
+	/**
+	 *	Copy constructor, used by clone(). The position is immutable and
+	 *	shared, the copy gets its own random stream split from this one.
+	 *	@param other The game to copy.
+	 */
+	private TicTacToe(TicTacToe other){
+		playerTurn=other.playerTurn;
+		position=other.position;
+		noSymbol=other.noSymbol;
+		difficulty=other.difficulty;
+		history=other.history.clone();
+		moveCount=other.moveCount;
+		mctsPlayouts=other.mctsPlayouts;
+		mctsTimeLimit=other.mctsTimeLimit;
+		rnd = other.rnd.split();
+	}
 	
 
 	//--------------------------------------------------------------------------
@@ -62,11 +118,67 @@ public class TicTacToe{
 	
 	/**
 	 *	Get the entrie cell grid. This is a 2-dimensional array of String
-	 *	with 3 subscript on each dimension (3x3 grid).
+	 *	with 3 subscript on each dimension (3x3 grid). The array is a view
+	 *	built from the bitboards, changing it does not change the game.
 	 *	@return 2-dimensional String array.
 	 */
 	public String[][] getCells(){
-		return cell;
+		String cells[][] = new String[3][3];
+		for (int r=0; r<3; r++){
+			for (int c=0; c<3; c++){
+				cells[r][c]=getCellSymbol(r,c);
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 *	Get the cells taken by the given symbol as a 9-bit mask, bit
+	 *	(row*3+col) being set for each cell holding the symbol.
+	 *	@param symbol Either "X" or "O".
+	 *	@return Bitmask of the cells holding the symbol, 0 for any other symbol.
+	 */
+	public int getSymbolBits(String symbol){
+		if (symbol.equals("X")) return position.getXBits();
+		if (symbol.equals("O")) return position.getOBits();
+		return 0;
+	}
+
+	/**
+	 *	Get the current position. Positions are immutable, the one returned
+	 *	can be analysed from any thread while this game goes on.
+	 *	@return The cells and the symbol to move.
+	 */
+	public Position getPosition(){
+		return position;
+	}
+
+	/**
+	 *	Get a key identifying the board contents, suitable for hashing.
+	 *	Two games holding the same symbols in the same cells have the same key.
+	 *	@return The board key (see BitBoard.key).
+	 */
+	public int getBoardKey(){
+		return position.getKey();
+	}
+
+	/**
+	 *	Get the number of moves made with makeMove/placeMove since the
+	 *	last gameReset(), taken back moves excluded.
+	 *	@return The number of moves in the history.
+	 */
+	public int getMoveCount(){
+		return moveCount;
+	}
+
+	/**
+	 *	Get a move of the history.
+	 *	@param i Number of the move, 0 for the first one.
+	 *	@return The cell played (row*3+col).
+	 */
+	public int getMove(int i){
+		if (i<0 || i>=moveCount) throw new IndexOutOfBoundsException();
+		return history[i];
 	}
 
 	/**
@@ -76,8 +188,10 @@ public class TicTacToe{
 	 *	@return Symbol of the specified cell.
 	 */	
 	public String getCellSymbol(int row, int col){
-		if (row<0 || row>2 || col<0 || row>2) throw new IndexOutOfBoundsException();
-		return cell[row][col];
+		int bit = cellBit(row,col);
+		if ((position.getXBits() & bit)!=0) return "X";
+		if ((position.getOBits() & bit)!=0) return "O";
+		return " ";
 	}
 
 	/**
@@ -87,11 +201,8 @@ public class TicTacToe{
 	 *	@symbol	The new symbol to set. If invalid symbol, nothing is changed.
 	 */
 	public void setCellSymbol(int row, int col, String symbol){
-		if (row<0 || row>2 || col<0 || row>2) return;
-		if (symbol.equals("X") || 
-			symbol.equals("O") || 
-			symbol.equals(" "))
-			cell[row][col]=symbol;
+		if (row<0 || row>2 || col<0 || col>2) return;
+		position = position.withCell(BitBoard.index(row,col),symbol);
 	}
 
 	/**
@@ -99,7 +210,8 @@ public class TicTacToe{
 	 *	@return The current turn's symbol.
 	 */
 	public String getCurrentSymbol(){
-		return currentSymbol;
+		if (noSymbol) return " ";
+		return position.isXToMove() ? "X" : "O";
 	}
 
 	/**
@@ -107,14 +219,44 @@ public class TicTacToe{
 	 *	@param newSymbol The current turn's symbol. Either "X", "O", or " ". Default: " ".
 	 */
 	public void setCurrentSymbol(String newSymbol){
-		if (newSymbol.equals("X") || 
-			newSymbol.equals("O") || 
-			newSymbol.equals(" "))
-			currentSymbol = newSymbol;
-		else
-			currentSymbol = " ";
+		noSymbol = !newSymbol.equals("X") && !newSymbol.equals("O");
+		if (!noSymbol) position = position.withXToMove(newSymbol.equals("X"));
 	}
 	
+	/**
+	 *	Get the monitor receiving the measurements of all games.
+	 *	@return The monitor, null if none.
+	 */
+	public static EngineMonitor getMonitor(){
+		return monitor;
+	}
+
+	/**
+	 *	Sets the monitor receiving the measurements of all games, such as
+	 *	EngineMetrics or JfrMonitor. Without one the engine measures nothing.
+	 *	@param newMonitor The monitor, null to stop measuring.
+	 */
+	public static void setMonitor(EngineMonitor newMonitor){
+		monitor=newMonitor;
+	}
+
+	/**
+	 *	Reseeds the random choices of the computer, so that a game can be
+	 *	played again move for move.
+	 *	@param seed The new seed.
+	 */
+	public void setSeed(long seed){
+		rnd = RandomSource.of(new SplittableRandom(seed));
+	}
+
+	/**
+	 *	Get the source of the random choices of the computer.
+	 *	@return The source.
+	 */
+	RandomSource getRandom(){
+		return rnd;
+	}
+
 	/**
 	 *	Get the current game difficulty level (higher = smarter)
 	 *	@return The current difficulty level
@@ -132,6 +274,33 @@ public class TicTacToe{
 		difficulty=newLevel;
 	}
 
+	/**
+	 *	Sets the budget of the Monte Carlo level (5): more playouts play
+	 *	stronger but slower. The search stops at whichever limit comes first.
+	 *	@param playouts		Playouts per move, 0 for no limit.
+	 *	@param timeLimit	Time budget of a move in milliseconds, 0 for no limit.
+	 */
+	public void setMctsBudget(int playouts, long timeLimit){
+		mctsPlayouts=playouts;
+		mctsTimeLimit=timeLimit;
+	}
+
+	/**
+	 *	Get the playouts per move of the Monte Carlo level.
+	 *	@return The playouts, 0 for no limit.
+	 */
+	int getMctsPlayouts(){
+		return mctsPlayouts;
+	}
+
+	/**
+	 *	Get the time budget of a move of the Monte Carlo level.
+	 *	@return The budget in milliseconds, 0 for no limit.
+	 */
+	long getMctsTimeLimit(){
+		return mctsTimeLimit;
+	}
+
 
 	//--------------------------------------------------------------------------
 	//	Other method(s)
@@ -142,33 +311,26 @@ public class TicTacToe{
 	 *	@return A copy of this TicTacToe.
 	 */
 	protected TicTacToe clone(){
-		TicTacToe ttt = new TicTacToe();
-		ttt.setPlayerTurn(isPlayerTurn());
-		ttt.setCurrentSymbol(getCurrentSymbol());
-		ttt.setDifficulty(getDifficulty());
-		
-		for (int r=0; r<3; r++){
-			for (int c=0; c<3; c++){
-				ttt.setCellSymbol(r,c,getCellSymbol(r,c));
-			}
-		}
-		return ttt;
+		EngineMonitor m = monitor;
+		if (m!=null) m.gameCloned();
+		return new TicTacToe(this);
 	}
 	
 	/**
 	 *	Resets the game to its default state. This returns the game back to 
 	 *	the player's turn, the current symbol to "X", and populate all cell
-	 *	values to " ". Game difficulty however is not changed.
+	 *	values to " ". Game difficulty however is not changed. What the
+	 *	strategies kept, such as the trees of the Monte Carlo level, is
+	 *	dropped.
 	 */
 	public void gameReset(){
 		setPlayerTurn(true);
 		setCurrentSymbol("X");
-				
-		for (int r=0; r<3; r++){
-			for (int c=0; c<3; c++){
-				setCellSymbol(r,c," ");
-			}
-		}		
+		position = Position.EMPTY;
+		moveCount=0;
+		for (Strategy strategy : strategies){
+			if (strategy!=null) strategy.reset();
+		}
 	}
 			
 	/**
@@ -180,8 +342,41 @@ public class TicTacToe{
 	 *	@return	Whether the move is successful.
 	 */
 	public boolean placeMove(int row,int col){
-		if (!getCellSymbol(row,col).equals(" ")) return false;
-		setCellSymbol(row,col,getCurrentSymbol());
+		return makeMove(row,col);
+	}
+
+	/**
+	 *	Place the current symbol like placeMove, recording the move so that
+	 *	it can be taken back with undoMove(). Used by the computer to try
+	 *	moves in place instead of on a copy of the game.
+	 *	@param	row Row of the cell.
+	 *	@param	col Column of the cell.
+	 *	@return	Whether the move is successful.
+	 */
+	public boolean makeMove(int row,int col){
+		if (!isVacant(row,col)) return false;
+		if (moveCount==history.length){
+			//cells were cleared with setCellSymbol, more moves than cells
+			int grown[] = new int[history.length*2];
+			System.arraycopy(history,0,grown,0,moveCount);
+			history=grown;
+		}
+		history[moveCount++]=BitBoard.index(row,col);
+		if (noSymbol) switchSymbol();
+		else position = position.play(BitBoard.index(row,col));
+		switchPlayer();
+		return true;
+	}
+
+	/**
+	 *	Takes back the last move made with makeMove or placeMove: the cell
+	 *	becomes vacant, and the current symbol and the player's turn are
+	 *	switched back. Cells changed with setCellSymbol are not tracked.
+	 *	@return Whether a move was taken back (false if none was made).
+	 */
+	public boolean undoMove(){
+		if (moveCount==0) return false;
+		position = position.withCell(history[--moveCount]," ");
 		switchSymbol();
 		switchPlayer();
 		return true;
@@ -210,41 +405,7 @@ public class TicTacToe{
 	 *	@return Whether a winning state is found.
 	 */
 	public boolean checkWin(){
-		String symbol[] = {"X","O"};
-		
-		//check for both symbols
-		for (int i=0; i<2; i++){
-			
-			//check all rows
-			for (int r=0; r<3; r++){
-				if (getCellSymbol(r,0).equals(symbol[i]) &&
-					getCellSymbol(r,1).equals(symbol[i]) &&
-					getCellSymbol(r,2).equals(symbol[i])) 
-					return true;
-			}
-			
-			//check all columns
-			for (int c=0; c<3; c++){
-				if (getCellSymbol(0,c).equals(symbol[i]) &&
-					getCellSymbol(1,c).equals(symbol[i]) &&
-					getCellSymbol(2,c).equals(symbol[i])) 
-					return true;
-			}
-			
-			//check diagonal top left to bottom right
-			if (getCellSymbol(0,0).equals(symbol[i]) &&
-				getCellSymbol(1,1).equals(symbol[i]) &&
-				getCellSymbol(2,2).equals(symbol[i])) 
-				return true;
-
-			//check diagonal top right to bottom left
-			if (getCellSymbol(0,2).equals(symbol[i]) &&
-				getCellSymbol(1,1).equals(symbol[i]) &&
-				getCellSymbol(2,0).equals(symbol[i])) 
-				return true;
-		}
-		//no matches found, so return false
-		return false;
+		return position.isWin();
 	}
 	
 	/**
@@ -252,24 +413,43 @@ public class TicTacToe{
 	 *	@return Whether a draw state is found.
 	 */
 	public boolean checkDraw(){
-		//check whether all cells are filled
-		for(int r=0; r<3; r++){
-			for(int c=0; c<3; c++){
-				if (getCellSymbol(r,c).equals(" ")) return false;
-			}
-		}		
-		if (checkWin()) return false;
-		return true;
+		return position.isDraw();
+	}
+
+	/**
+	 *	Get the bit of the specified cell, checking its bounds.
+	 *	@param row	Row of the cell.
+	 *	@param col	Column of the cell.
+	 *	@return The cell bit (see BitBoard.bit).
+	 */
+	private int cellBit(int row, int col){
+		if (row<0 || row>2 || col<0 || col>2) throw new IndexOutOfBoundsException();
+		return BitBoard.bit(row,col);
+	}
+
+	/**
+	 *	Checks whether the specified cell is vacant.
+	 *	@param row	Row of the cell.
+	 *	@param col	Column of the cell.
+	 *	@return Whether no symbol is placed on the cell.
+	 */
+	private boolean isVacant(int row, int col){
+		return (position.getVacant() & cellBit(row,col))!=0;
 	}
 	
 	/**
 	 *	The computer will compute a move and calls the placeMove method.
 	 */
 	public void computeMove(){
-		int pos[] = new int[2];
+		EngineMonitor m = monitor;
+		long start = m!=null ? System.nanoTime() : 0;
+		int level = getDifficulty()<=6 ? getDifficulty() : 0;
+		movePath = level==0 ? EngineMonitor.RANDOM : EngineMonitor.STRATEGY;
+		movePositions=0;
+		int pos[];
 
 		//select level of AI strategy to employ
-		switch(getDifficulty()){
+		switch(level){
 		
 		case 1:		//normal (rule base: know how to win or block player,)
 			pos = strategyNormal();
@@ -277,11 +457,20 @@ public class TicTacToe{
 		case 2:		//smart (analyze winning patterns on the board)
 			pos = strategyPattern();
 			break;
+		case 3:		//perfect (look up the solved position table)
+			pos = strategyPerfect();
+			break;
+		case 4:		//search (alpha-beta search of the m,n,k game, SearchStrategy)
+		case 5:		//monte carlo (tree search over random playouts, MctsStrategy)
+		case 6:		//learned (values learned by self-play, LearnedStrategy)
+			pos = strategyLoaded(level);
+			break;
 		case 0:		//noob (randomly place moves)
 		default:
 			pos = strategyRandom();			
 		}
 		placeMove(pos[0],pos[1]);
+		if (m!=null) m.moveComputed(level,movePath,movePositions,System.nanoTime()-start);
 	}
 	
 	
@@ -297,97 +486,67 @@ public class TicTacToe{
 		int r=0,c=0;
 		
 		do {
-			r=Math.abs(rnd.nextInt())%3;
-			c=Math.abs(rnd.nextInt())%3;
-		}while(!getCellSymbol(r,c).equals(" "));
+			r=rnd.nextInt(3);
+			c=rnd.nextInt(3);
+		}while(!isVacant(r,c));
 		
 		int randomMove[] = {r,c};
 		return randomMove;
 	}
 	
 	/**
-	 *	Using normal rule of thumb knowledge. If putting in a cell will cause
-	 *	the computer to win, it will do so. If putting a cell can block the
-	 *	player from winning, it will do so.
-	 *	@return Array containing the row and column value. 0-row, 1-column or
-	 *			null if no opportunity to win or block.
+	 *	Plays randomly when a strategy has no move, counted as a fallback.
+	 *	@return Array containing the row and column value. 0-row, 1-column
 	 */
-	private int[] tryWinOrBlock(){
-		//if computer can win, then win
-		for (int r=0; r<3; r++){
-			for (int c=0; c<3; c++){
-				if (getCellSymbol(r,c).equals(" ")){
-					TicTacToe ttt = clone();
-					ttt.placeMove(r,c);
-					if (ttt.checkWin()){
-						int pos[] = {r,c};
-						return pos;
-					}
-				}
-			}
-		}
-
-		//if computer can block then must block
-		for (int r=0; r<3; r++){
-			for (int c=0; c<3; c++){
-				if (getCellSymbol(r,c).equals(" ")){
-					TicTacToe ttt = clone();
-					ttt.switchPlayer();
-					ttt.switchSymbol();
-					ttt.placeMove(r,c);
-					if (ttt.checkWin()){
-						int pos[] = {r,c};
-						return pos;
-					}
-				}
-			}
-		}
-		return null;
+	private int[] fallbackRandom(){
+		movePath=EngineMonitor.FALLBACK;
+		return strategyRandom();
 	}
 
 	/**
-	 *	Randomly returns the position for any corner on the cell grid
+	 *	Randomly selects one of the cells set in a mask.
+	 *	@param mask Cell mask, must not be 0.
 	 *	@return Array containing the row and column value. 0-row, 1-column
 	 */
-	private int[] getRandomCorner(){
-		int pos[] = new int[2];
-		int corner = Math.abs(rnd.nextInt())%4;
-		
-		switch(corner){
-		case 0:
-			pos[0]=0; pos[1]=0;		//top left
-			break;	
-		case 1:
-			pos[0]=0; pos[1]=2;		//top right
-			break;	
-		case 2:
-			pos[0]=2; pos[1]=0;		//bottom left
-			break;	
-		case 3:
-			pos[0]=2; pos[1]=2;		//bottom right
-			break;	
-		}
+	private int[] getRandomCell(int mask){
+		int i = randomCell(mask);
+		int pos[] = {i/3, i%3};
 		return pos;
 	}
-		
+
 	/**
-	 *	Same as getRandomCorner, but this method returns only if its vacant
-	 *	@return Array containing the row and column value. 0-row, 1-column,
-	 *			returns null if all corners are not vacant
+	 *	Randomly selects one of the cells set in a mask, drawing from the
+	 *	random choices of this game.
+	 *	@param mask Cell mask, must not be 0.
+	 *	@return The cell (row*3+col).
 	 */
-	private int[] getEmptyRandomCorner(){		
-		//return null if all corners filled
-		if (getCellSymbol(0,0).equals(" ") ||
-			getCellSymbol(0,2).equals(" ") ||
-			getCellSymbol(2,0).equals(" ") ||
-			getCellSymbol(2,2).equals(" ")){
-			
-			while(true){
-				int pos[]=getRandomCorner();
-				if (getCellSymbol(pos[0],pos[1]).equals(" ")) return pos;
-			}
+	int randomCell(int mask){
+		int n = rnd.nextInt(BitBoard.count(mask));
+		int i = 0;
+		for (; i<BitBoard.SIZE; i++){
+			if ((mask & (1<<i))!=0 && n--==0) break;
 		}
-		return null;
+		return i;
+	}
+
+	/**
+	 *	Using normal rule of thumb knowledge. If putting in a cell will cause
+	 *	the computer to win, it will do so. If putting a cell can block the
+	 *	player from winning, it will do so.
+	 *	@return Array containing the row and column value. 0-row, 1-column or
+	 *			null if no opportunity to win or block.
+	 */
+	private int[] tryWinOrBlock(){
+		//if computer can win, then win
+		int cells = position.getWinningMoves();
+
+		//if computer can block then must block
+		if (cells==0) cells = position.getBlockingMoves();
+		if (cells==0) return null;
+		movePath=EngineMonitor.WIN_OR_BLOCK;
+		int cell = Integer.numberOfTrailingZeros(cells);
+		int pos[] = {cell/3, cell%3};
+		return pos;
 	}
 
 	/**
@@ -397,23 +556,9 @@ public class TicTacToe{
 	private int[] strategyNormal(){
 		int pos[] = tryWinOrBlock();		
 		if (pos!=null) return pos;
-		return strategyRandom();
+		return fallbackRandom();
 	}	
 
-	/**
-	 *	Counts the number of symbols that has been placed on the cell grid.
-	 *	@return	The number of non-vacant cells
-	 */
-	private int getSymbolCount(){
-		int count=0;
-		for (int r=0; r<3; r++){
-			for (int c=0; c<3; c++){
-				if (!getCellSymbol(r,c).equals(" ")) count++;
-			}
-		}
-		return count;
-	}
-	
 	/**
 	 *	Return a string containing the pattern of the cell grid, read from
 	 *	left to right, top to bottom. Computer symbols are marked with 'C', 
@@ -421,236 +566,88 @@ public class TicTacToe{
 	 *	@return A string containing all the symbols of the cell (linearly)
 	 */
 	private String getPattern(){
-		String pattern="";
-		for (int r=0; r<3; r++){
-			for (int c=0; c<3; c++){
-				String symbol=getCellSymbol(r,c);
-				if (symbol.equals(" "))
-					pattern+=".";
-				else{
-					//we assume current turn is computer's (playerTurn=false)
-					if (symbol.equals(getCurrentSymbol())) pattern+="C";
-					else pattern+="H";						
-				}
-			}
+		//we assume current turn is computer's (playerTurn=false)
+		int comp = position.getMine();
+		int human = position.getTheirs();
+		char pattern[] = new char[BitBoard.SIZE];
+		for (int i=0; i<BitBoard.SIZE; i++){
+			int bit = 1<<i;
+			if ((comp & bit)!=0) pattern[i]='C';
+			else if ((human & bit)!=0) pattern[i]='H';
+			else pattern[i]='.';
 		}
-		return pattern;
+		return new String(pattern);
 	}
 	
 	/**
 	 *	In addition to having the capbility to take wins and block moves, now it
 	 *	has the ability to recognize patterns that could trick the user by having
 	 *	2 cells that could cause a victory. Also identify if the human player
-	 *	is attempting to use these tricks on the computer as well.
+	 *	is attempting to use these tricks on the computer as well. The patterns
+	 *	are kept in the OpeningBook, in the same encoding as getPattern().
 	 *	@return Array containing the row and column value. 0-row, 1-column
 	 */
 	private int[] strategyPattern(){
-
-		lastPattern = getPattern();
 		int defPos[] = tryWinOrBlock();		
 		if (defPos!=null) return defPos;
 
-		//get the current turn
-		int turn = getSymbolCount();
-		switch(turn){
-		
-		// Legend of the cell grids below:
-		// H - Human
-		// C - Computer
-		// . - Vacant
-		// * - Safe cell to place next move
-		
-		case 0:	//computer starts, board is empty
-
-			//if computer starts first, take any corner
-			//  *.*
-			//  ...
-			//  *.*
-			return getRandomCorner();
-			
-		case 1:	//human started.
-
-			//if human took middle, comp takes corner.
-			//if human took anything else, comp takes middle
-			//  H..    *..
-			//  .*.    .H.
-			//  ...    ...
-			if (!getCellSymbol(1,1).equals(" "))
-				return getRandomCorner();
-			else{
-				int pos[] = {1,1}; 
-				return pos;
-			}
-		
-		case 2:	//computer started, computer's 2nd move
-
-			//human did not take middle on their turn
-			//this step is important as it will may generate a win for the comp
-			//	CH.   C.H   C.*    C.*
-			//	...   ...   ..H    ...
-			//	*..   *..   ...    *.H
-			if (lastPattern.equals("CH.......")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals("C.H......")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals("C..H.....")) {int pos[]= {0,2}; return pos;}
-			if (lastPattern.equals("C....H...")) {int pos[]= {0,2}; return pos;}
-			if (lastPattern.equals("C.....H..")) {int pos[]= {0,2}; return pos;}
-			if (lastPattern.equals("C......H.")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals("C.......H")) {return getEmptyRandomCorner();}
-
-			if (lastPattern.equals("H.C......")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals(".HC......")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals("..CH.....")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals("..C..H...")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals("..C...H..")) {return getEmptyRandomCorner();}
-			if (lastPattern.equals("..C....H.")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals("..C.....H")) {int pos[]= {0,0}; return pos;}
-			
-			if (lastPattern.equals("H.....C..")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals(".H....C..")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals("..H...C..")) {return getEmptyRandomCorner();}
-			if (lastPattern.equals("...H..C..")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals(".....HC..")) {int pos[]= {2,2}; return pos;}			
-			if (lastPattern.equals("......CH.")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals("......C.H")) {int pos[]= {0,0}; return pos;}
-
-			if (lastPattern.equals("H.......C")) {return getEmptyRandomCorner();}
-			if (lastPattern.equals(".H......C")) {int pos[]= {0,2}; return pos;}
-			if (lastPattern.equals("..H.....C")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals("...H....C")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals(".....H..C")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals("......H.C")) {int pos[]= {0,2}; return pos;}
-			if (lastPattern.equals(".......HC")) {int pos[]= {0,2}; return pos;}
-
-			
-			//however if human took the middle
-			//  C..    **.    .**    ..C
-			//  .H*    *H.    .H*    *H.
-			//  .**    ..C    C..    **.
-			if (lastPattern.equals("C...H....")) {
-				int pos[][]= {{1,2},{2,1},{2,2}};	//3 possible moves
-				return (pos[Math.abs(rnd.nextInt())%3]);				
-			}
-			if (lastPattern.equals("..C.H....")) {
-				int pos[][]= {{1,0},{2,0},{2,1}};	//3 possible moves
-				return (pos[Math.abs(rnd.nextInt())%3]);				
-			}
-			if (lastPattern.equals("....H.C..")) {
-				int pos[][]= {{0,1},{0,2},{1,2}};	//3 possible moves
-				return (pos[Math.abs(rnd.nextInt())%3]);				
-			}
-			if (lastPattern.equals("....H...C")) {
-				int pos[][]= {{0,0},{0,1},{1,0}};	//3 possible moves
-				return (pos[Math.abs(rnd.nextInt())%3]);				
-			}
-			
-		case 3: //human started, computer's 2nd move
-		
-			//if human took middle, computer and human took opposing corners
-			//  C.*    *.C    *.H    H.*
-			//  .H.    .H.    .H.    .H.
-			//  *.H    H.*    C.*    *.C
-			if (lastPattern.equals("C...H...H") ||
-				lastPattern.equals("H...H...C")) {
-				int pos[][]= {{0,2},{2,0}};	//2 possible moves
-				return (pos[Math.abs(rnd.nextInt())%2]);
-			}
-			if (lastPattern.equals("..C.H.H..") ||
-				lastPattern.equals("..H.H.C..")) {
-				int pos[][]= {{0,0},{2,2}};	//2 possible moves
-				return (pos[Math.abs(rnd.nextInt())%2]);
-			}
-			
-			//if computer took middle,
-			//and human took 2 opposing corners
-			//  H*.    .*H
-			//  *C*    *C*
-			//  .*H    H*.
-			if (lastPattern.equals("H...C...H") ||
-				lastPattern.equals("..H.C.H..")) {
-				int pos[][]= {{0,1},{1,0},{1,2},{2,1}};	//4 possible moves
-				return (pos[Math.abs(rnd.nextInt())%4]);
-			}					
-
-			//if computer took middle,
-			//and human took both sides
-			//  .H*    *H.    ...    ...
-			//  .CH    HC.    HC.    .CH
-			//  ...    ...    *H.    .H*
-			if (lastPattern.equals(".H..CH...")) {int pos[]= {0,2}; return pos;}
-			if (lastPattern.equals("....CH.H.")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals(".H.HC....")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals("...HC..H.")) {int pos[]= {2,0}; return pos;}
-			
-			//  *H*    *.*
-			//  .C.    HCH
-			//  *H*    *.*
-			if (lastPattern.equals("...HCH...")||
-				lastPattern.equals(".H..C..H.")) {return getRandomCorner();}
-			
-			//if computer took middle,
-			//and human took a corner and a side
-			//  H..    ..H    *.H    ...
-			//  .C.    .C.    HC.    HC.
-			//  *H.    .H*    ...    *.H
-			if (lastPattern.equals("H...C..H.")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals("..H.C..H.")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals(".H..C.H..")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals(".H..C...H")) {int pos[]= {0,2}; return pos;}			
-			if (lastPattern.equals("H...CH...")) {int pos[]= {0,2}; return pos;}
-			if (lastPattern.equals("....CHH..")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals("..HHC....")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals("...HC...H")) {int pos[]= {2,0}; return pos;}
-
-		case 4: //computer started, computer's 3rd move
-		
-			//this is the step that will secure victory for the comp
-			//if human has not taken middle
-			//  CHC    ..*    CH.    C.*
-			//  H..    H..    H..    H..
-			//  ..*    CHC    C.*    CH.
-			if (lastPattern.equals("CHCH.....")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals("CHC..H...")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals("CHC...H..")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals("CHC.....H")) {int pos[]= {2,0}; return pos;}
-
-			if (lastPattern.equals("H.....CHC")) {int pos[]= {0,2}; return pos;}
-			if (lastPattern.equals("..H...CHC")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals("...H..CHC")) {int pos[]= {0,2}; return pos;}
-			if (lastPattern.equals(".....HCHC")) {int pos[]= {0,0}; return pos;}
-
-			if (lastPattern.equals("CH.H..C..")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals("C.HH..C..")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals("C..H..CH.")) {int pos[]= {0,2}; return pos;}
-			if (lastPattern.equals("C..H..C.H")) {int pos[]= {0,2}; return pos;}
-			
-			if (lastPattern.equals("H.C..H..C")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals(".HC..H..C")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals("..C..HH.C")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals("..C..H.HC")) {int pos[]= {0,0}; return pos;}
-
-			//if human had taken middle earlier,
-			//  CH.    ...
-			//  .H.    HHC
-			//  *C.    C.*
-			if (lastPattern.equals("CH..H..C.")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals(".HC.H..C.")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals(".C..H.CH.")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals(".C..H..HC")) {int pos[]= {0,2}; return pos;}
-			
-		case 6:	//computer started, computer's 4th move
-			
-			//This move will still secure a victory for the computer. Usually
-			//human who played badly will reach this pattern state.
-			//  CH.
-			//  HHC
-			//  .C*
-			if (lastPattern.equals("CH.HHC.C.")) {int pos[]= {2,2}; return pos;}
-			if (lastPattern.equals(".HCCHH.C.")) {int pos[]= {2,0}; return pos;}
-			if (lastPattern.equals(".C.CHH.HC")) {int pos[]= {0,0}; return pos;}
-			if (lastPattern.equals(".C.HHCCH.")) {int pos[]= {0,2}; return pos;}
+		//look the position up in the opening book, computer to move
+		int comp = position.getMine();
+		int human = position.getTheirs();
+		int moves = OpeningBook.getDefault().getMoves(comp,human);
+		movePositions=1;
+		if (moves!=0){
+			movePath=EngineMonitor.BOOK;
+			return getRandomCell(moves);
 		}
-		
+
 		//use random move for all other occasions
-		return strategyRandom();
+		return fallbackRandom();
 	}	
+
+	/**
+	 *	Plays perfectly by looking the position up in the PerfectPlayTable,
+	 *	choosing randomly between the optimal moves. The table covers every
+	 *	reachable position, random play is only used for boards that cannot
+	 *	happen in a normal game.
+	 *	@return Array containing the row and column value. 0-row, 1-column
+	 */
+	private int[] strategyPerfect(){
+		int moves = position.getBestMoves();
+		movePositions=1;
+		if (moves==0) return fallbackRandom();
+		return getRandomCell(moves);
+	}
+
+	/**
+	 *	Plays the move of a Strategy loaded by name, see STRATEGIES.
+	 *	@param level The difficulty level.
+	 *	@return Array containing the row and column value. 0-row, 1-column
+	 *	@throws IllegalStateException If the strategy cannot be loaded.
+	 */
+	private int[] strategyLoaded(int level){
+		Strategy strategy = strategies[level];
+		if (strategy==null) strategies[level] = strategy = loadStrategy(level);
+		int move = strategy.findMove(this);
+		movePositions = strategy.getPositions();
+		if (move<0) return fallbackRandom();
+		int pos[] = {move/3, move%3};
+		return pos;
+	}
+
+	/**
+	 *	Creates the Strategy of a level from its class name.
+	 *	@param level The difficulty level.
+	 *	@return The strategy.
+	 *	@throws IllegalStateException If the class cannot be loaded, for
+	 *								  example when it was left out of a build.
+	 */
+	private static Strategy loadStrategy(int level){
+		try{
+			return (Strategy)Class.forName(STRATEGIES[level]).getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException e){
+			throw new IllegalStateException("Level "+level+" is not available: "+e,e);
+		}
+	}
 }
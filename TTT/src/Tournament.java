@@ -0,0 +1,450 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *	Round-robin tournament between engine configurations, rating them on
+ *	the Elo scale so that each difficulty bucket can be given the
+ *	configuration of the strength it needs.
+ *
+ *	An entrant is a difficulty level, optionally followed by "/" and the
+ *	playouts per move of the Monte Carlo level, for example "5/1000". Every
+ *	pair of entrants plays the same number of games, each entrant starting
+ *	half of them. Games are played in chunks over a thread pool, each game
+ *	reseeded from the base seed, the pair and its number, so a run is
+ *	reproducible whatever the thread count.
+ *
+ *	Ratings are the maximum likelihood Bradley-Terry ratings of the scores
+ *	(a draw counts half a win), averaging 0. Each pair is given one virtual
+ *	draw, so that an entrant that never loses or never wins still gets a
+ *	finite rating. The 95% intervals assume the other ratings are exact.
+ *
+ *	Usage: java Tournament [games per pair] [threads] [seed] [entrant ...]
+ */
+public class Tournament{
+
+	/** Games per pair when none is given. */
+	public static final int DEFAULT_GAMES = 200;
+
+	/** Games played by one task. */
+	private static final int CHUNK = 50;
+
+	/** Iterations of the rating fit. */
+	private static final int FIT_ITERATIONS = 1000;
+
+	/** Elo points per natural log of the odds. */
+	private static final double ELO = 400/Math.log(10);
+
+	/** The entrants. */
+	private final Entrant entrants[];
+
+	/** Number of threads playing games. */
+	private final int threads;
+
+	/** Seed the game seeds are derived from. */
+	private final long seed;
+
+	/**
+	 *	Main program entry
+	 *	@param args	[games per pair] [threads] [seed] [entrant ...], all
+	 *				levels if no entrant is given
+	 */
+	public static void main(String args[]) throws Exception {
+		int games = args.length>0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+		int threads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length>2 ? Long.parseLong(args[2]) : System.currentTimeMillis();
+		List<Entrant> entrants = new ArrayList<Entrant>();
+		for (int i=3; i<args.length; i++) entrants.add(Entrant.parse(args[i]));
+		if (entrants.isEmpty()){
+			for (int level=0; level<EngineMetrics.LEVELS; level++) entrants.add(new Entrant(level,MctsSearch.DEFAULT_PLAYOUTS));
+		}
+		if (entrants.size()<2){
+			System.err.println("Usage: java Tournament [games per pair] [threads] [seed] [level[/playouts] ...]");
+			System.exit(1);
+		}
+
+		System.out.println(entrants.size() + " entrants, " + games + " games per pair on "
+			+ threads + " threads, seed " + seed);
+		EngineMetrics metrics = null;
+		if (Boolean.getBoolean("ttt.metrics") || Boolean.getBoolean("ttt.jfr")){
+			metrics = new EngineMetrics();
+			TicTacToe.setMonitor(Boolean.getBoolean("ttt.jfr") ? new JfrMonitor(metrics) : metrics);
+		}
+		Result result = new Tournament(entrants.toArray(new Entrant[entrants.size()]),threads,seed).run(games);
+		System.out.print(result.report());
+		if (metrics!=null) System.out.print(metrics.snapshot().report());
+	}
+
+	/**
+	 *	Creates a tournament.
+	 *	@param entrants	The entrants, at least 2.
+	 *	@param threads	Number of threads playing games.
+	 *	@param seed		Seed the game seeds are derived from.
+	 */
+	public Tournament(Entrant entrants[], int threads, long seed){
+		if (entrants.length<2) throw new IllegalArgumentException("A tournament needs 2 entrants");
+		this.entrants=entrants.clone();
+		this.threads=Math.max(1,threads);
+		this.seed=seed;
+	}
+
+	/**
+	 *	Plays every pair of entrants.
+	 *	@param games Games per pair, each entrant of the pair starting half.
+	 *	@return The results.
+	 */
+	public Result run(int games) throws Exception {
+		int n = entrants.length;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try{
+			long start = System.nanoTime();
+			List<Future<long[]>> parts = new ArrayList<Future<long[]>>();
+			List<int[]> pairs = new ArrayList<int[]>();
+			for (int a=0; a<n; a++){
+				for (int b=a+1; b<n; b++){
+					final int pair = pairs.size();
+					final int ea=a, eb=b;
+					pairs.add(new int[]{a,b});
+					for (int from=0; from<games; from+=CHUNK){
+						final int first=from, last=Math.min(games,from+CHUNK);
+						parts.add(pool.submit(() -> play(ea,eb,pair,first,last)));
+					}
+				}
+			}
+
+			Result result = new Result(entrants);
+			int part=0;
+			for (int pair[] : pairs){
+				for (int from=0; from<games; from+=CHUNK){
+					long counts[] = parts.get(part++).get();
+					result.wins[pair[0]][pair[1]]+=counts[0];
+					result.wins[pair[1]][pair[0]]+=counts[1];
+					result.draws[pair[0]][pair[1]]+=counts[2];
+					result.draws[pair[1]][pair[0]]+=counts[2];
+					result.moves+=counts[3];
+				}
+			}
+			result.elapsed = System.nanoTime()-start;
+			result.fit();
+			return result;
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 *	Plays a range of the games of a pair, each entrant on its own
+	 *	engine. Entrant a starts the even games.
+	 *	@return Wins of a, wins of b, draws and moves played.
+	 */
+	private long[] play(int a, int b, int pair, int from, int to){
+		TicTacToe engineA = new TicTacToe(), engineB = new TicTacToe();
+		entrants[a].configure(engineA);
+		entrants[b].configure(engineB);
+		long counts[] = new long[4];
+		for (int game=from; game<to; game++){
+			long gameSeed = SelfPlaySimulator.mix(seed + ((long)pair<<32) + game);
+			engineA.gameReset();
+			engineA.setSeed(gameSeed);
+			engineB.gameReset();
+			engineB.setSeed(~gameSeed);
+			boolean aToMove = (game & 1)==0;
+			while (true){
+				TicTacToe mover = aToMove ? engineA : engineB;
+				TicTacToe other = aToMove ? engineB : engineA;
+				mover.computeMove();
+				int cell = mover.getMove(mover.getMoveCount()-1);
+				other.placeMove(cell/3,cell%3);
+				counts[3]++;
+
+				if (mover.checkWin()){
+					counts[aToMove ? 0 : 1]++;
+					break;
+				}
+				if (mover.checkDraw()){
+					counts[2]++;
+					break;
+				}
+				aToMove=!aToMove;
+			}
+		}
+		return counts;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Entrant
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	An engine configuration: a difficulty level and the budget of the
+	 *	Monte Carlo level.
+	 */
+	public static class Entrant{
+
+		private final int level;
+		private final int playouts;
+
+		/**
+		 *	Creates an entrant.
+		 *	@param level	The difficulty level.
+		 *	@param playouts	Playouts per move of the Monte Carlo level.
+		 */
+		public Entrant(int level, int playouts){
+			if (level<0) throw new IllegalArgumentException("Negative level: "+level);
+			if (playouts<=0) throw new IllegalArgumentException("Playouts must be positive: "+playouts);
+			this.level=level;
+			this.playouts=playouts;
+		}
+
+		/**
+		 *	Parses an entrant: "level" or "level/playouts".
+		 *	@param spec The entrant.
+		 *	@return The entrant.
+		 */
+		public static Entrant parse(String spec){
+			int split = spec.indexOf('/');
+			if (split<0) return new Entrant(Integer.parseInt(spec.trim()),MctsSearch.DEFAULT_PLAYOUTS);
+			return new Entrant(Integer.parseInt(spec.substring(0,split).trim()),Integer.parseInt(spec.substring(split+1).trim()));
+		}
+
+		/**
+		 *	Get the difficulty level.
+		 *	@return The level.
+		 */
+		public int getLevel(){
+			return level;
+		}
+
+		/**
+		 *	Get the playouts per move of the Monte Carlo level.
+		 *	@return The playouts.
+		 */
+		public int getPlayouts(){
+			return playouts;
+		}
+
+		/**
+		 *	Sets up an engine to play as this entrant.
+		 *	@param game The engine.
+		 */
+		public void configure(TicTacToe game){
+			game.setDifficulty(level);
+			game.setMctsBudget(playouts,0);
+		}
+
+		public String toString(){
+			return level==5 ? level+"/"+playouts : Integer.toString(level);
+		}
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Result
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Scores and ratings of a tournament.
+	 */
+	public static class Result{
+
+		private final Entrant entrants[];
+
+		/** Games won by the row entrant against the column entrant. */
+		private final long wins[][];
+
+		/** Games drawn between the row and column entrants. */
+		private final long draws[][];
+
+		/** Ratings, Elo points averaging 0. */
+		private final double ratings[];
+
+		/** Half widths of the 95% intervals of the ratings. */
+		private final double errors[];
+
+		/** Moves played. */
+		private long moves;
+
+		/** Time taken to play the games, in nanoseconds. */
+		private long elapsed;
+
+		Result(Entrant entrants[]){
+			int n = entrants.length;
+			this.entrants=entrants;
+			wins = new long[n][n];
+			draws = new long[n][n];
+			ratings = new double[n];
+			errors = new double[n];
+		}
+
+		/**
+		 *	Get the number of entrants.
+		 *	@return The entrant count.
+		 */
+		public int size(){
+			return entrants.length;
+		}
+
+		/**
+		 *	Get an entrant.
+		 *	@param i Index of the entrant, in the order given.
+		 *	@return The entrant.
+		 */
+		public Entrant getEntrant(int i){
+			return entrants[i];
+		}
+
+		/**
+		 *	Get the games an entrant won against another.
+		 *	@param i Index of the winner.
+		 *	@param j Index of the loser.
+		 *	@return The game count.
+		 */
+		public long getWins(int i, int j){
+			return wins[i][j];
+		}
+
+		/**
+		 *	Get the games drawn between two entrants.
+		 *	@param i Index of an entrant.
+		 *	@param j Index of the other entrant.
+		 *	@return The game count.
+		 */
+		public long getDraws(int i, int j){
+			return draws[i][j];
+		}
+
+		/**
+		 *	Get the rating of an entrant.
+		 *	@param i Index of the entrant.
+		 *	@return The rating, in Elo points; the ratings average 0.
+		 */
+		public double getRating(int i){
+			return ratings[i];
+		}
+
+		/**
+		 *	Get the half width of the 95% interval of a rating.
+		 *	@param i Index of the entrant.
+		 *	@return The half width, in Elo points.
+		 */
+		public double getError(int i){
+			return errors[i];
+		}
+
+		/**
+		 *	Get the number of games played.
+		 *	@return The game count.
+		 */
+		public long getGames(){
+			long games=0;
+			for (int i=0; i<size(); i++){
+				for (int j=0; j<size(); j++) games+=wins[i][j]+(i<j ? draws[i][j] : 0);
+			}
+			return games;
+		}
+
+		/**
+		 *	Get the score of an entrant: wins plus half the draws.
+		 */
+		private double score(int i, int j){
+			return wins[i][j]+0.5*draws[i][j];
+		}
+
+		/**
+		 *	Get the games between two entrants.
+		 */
+		private long games(int i, int j){
+			return wins[i][j]+wins[j][i]+draws[i][j];
+		}
+
+		/**
+		 *	Fits the ratings by minorization-maximization of the
+		 *	Bradley-Terry likelihood, then the intervals from its curvature.
+		 */
+		void fit(){
+			int n = size();
+			double gamma[] = new double[n];
+			Arrays.fill(gamma,1);
+			for (int iteration=0; iteration<FIT_ITERATIONS; iteration++){
+				double next[] = new double[n];
+				double logSum=0;
+				for (int i=0; i<n; i++){
+					//one virtual draw per pair
+					double won=0, sum=0;
+					for (int j=0; j<n; j++){
+						if (j==i) continue;
+						won += score(i,j)+0.5;
+						sum += (games(i,j)+1)/(gamma[i]+gamma[j]);
+					}
+					next[i]=won/sum;
+					logSum+=Math.log(next[i]);
+				}
+				double scale = Math.exp(-logSum/n);
+				for (int i=0; i<n; i++) gamma[i]=next[i]*scale;
+			}
+
+			for (int i=0; i<n; i++){
+				double information=0;
+				for (int j=0; j<n; j++){
+					if (j==i) continue;
+					double p = gamma[i]/(gamma[i]+gamma[j]);
+					information += (games(i,j)+1)*p*(1-p);
+				}
+				ratings[i]=ELO*Math.log(gamma[i]);
+				errors[i]=1.96*ELO/Math.sqrt(information);
+			}
+		}
+
+		/**
+		 *	Formats the result as text: the entrants from the highest rated,
+		 *	the score of each against each, then the throughput.
+		 *	@return The report.
+		 */
+		public String report(){
+			int n = size();
+			Integer order[] = new Integer[n];
+			for (int i=0; i<n; i++) order[i]=i;
+			Arrays.sort(order,(a, b) -> Double.compare(ratings[b],ratings[a]));
+
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("%-4s %-10s %7s %6s %8s %7s %7s %7s %7s%n","Rank","Entrant","Elo","+/-","Games","Score","Wins","Draws","Losses"));
+			for (int rank=0; rank<n; rank++){
+				int i = order[rank];
+				long won=0, drawn=0, lost=0;
+				for (int j=0; j<n; j++){
+					won+=wins[i][j];
+					drawn+=draws[i][j];
+					lost+=wins[j][i];
+				}
+				long games = won+drawn+lost;
+				sb.append(String.format("%-4d %-10s %7.0f %6.0f %8d %6.1f%% %7d %7d %7d%n",rank+1,entrants[i],ratings[i],errors[i],
+					games,games==0 ? 0 : 100*(won+0.5*drawn)/games,won,drawn,lost));
+			}
+
+			sb.append("\nScore of row against column:\n");
+			sb.append(String.format("%-10s",""));
+			for (int j : order) sb.append(String.format(" %7s",entrants[j]));
+			sb.append('\n');
+			for (int i : order){
+				sb.append(String.format("%-10s",entrants[i]));
+				for (int j : order){
+					if (i==j) sb.append(String.format(" %7s","-"));
+					else sb.append(String.format(" %6.1f%%",games(i,j)==0 ? 0 : 100*score(i,j)/games(i,j)));
+				}
+				sb.append('\n');
+			}
+
+			long games = getGames();
+			double seconds = elapsed/1e9;
+			sb.append("\nTime: ").append(String.format("%.3f",seconds)).append(" s, ")
+				.append(String.format("%.0f",seconds>0 ? games/seconds : 0)).append(" games/s, ")
+				.append(String.format("%.0f",seconds>0 ? moves/seconds : 0)).append(" moves/s\n");
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ *	Fixed size hash table of search results, indexed by the Zobrist hash of
+ *	the position. Entries are stored in two-slot buckets: the first slot
+ *	keeps the deepest result of the current search, the second slot always
+ *	takes the newest one. Entries left by older searches are evicted first,
+ *	so the table never grows past the size given at creation.
+ */
+public class TranspositionTable{
+
+	/** The stored score is exact. */
+	public static final int EXACT = 1;
+
+	/** The stored score is a lower bound (the search failed high). */
+	public static final int LOWER = 2;
+
+	/** The stored score is an upper bound (the search failed low). */
+	public static final int UPPER = 3;
+
+	/** Returned by probe() when the position is not stored. */
+	public static final long MISS = 0;
+
+	/** Full hashes of the stored positions. */
+	private final long keys[];
+
+	/**
+	 *	Packed entries: score (32 bits), best move (16 bits), depth (8 bits),
+	 *	generation (6 bits) and bound type (2 bits). 0 marks an empty slot.
+	 */
+	private final long data[];
+
+	/** Mask giving the bucket of a hash. */
+	private final int bucketMask;
+
+	/** Generation of the current search, entries of other ones are stale. */
+	private int generation;
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Creates a table holding at most the given number of entries, rounded
+	 *	down to a power of two.
+	 *	@param maxEntries Maximum number of entries, at least 2.
+	 */
+	public TranspositionTable(int maxEntries){
+		int buckets = Integer.highestOneBit(Math.max(2,maxEntries)/2);
+		keys = new long[buckets*2];
+		data = new long[buckets*2];
+		bucketMask = buckets-1;
+		generation = 1;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Starts a new search: the entries stored so far become the first to be
+	 *	replaced, but may still be probed.
+	 */
+	public void newSearch(){
+		generation = (generation % 63)+1;
+	}
+
+	/**
+	 *	Empties the table.
+	 */
+	public void clear(){
+		Arrays.fill(keys,0);
+		Arrays.fill(data,0);
+	}
+
+	/**
+	 *	Get the number of entries the table can hold.
+	 *	@return The capacity.
+	 */
+	public int capacity(){
+		return keys.length;
+	}
+
+	/**
+	 *	Looks a position up.
+	 *	@param hash	Zobrist hash of the position.
+	 *	@return The packed entry (use the static getters), or MISS.
+	 */
+	public long probe(long hash){
+		int slot = bucket(hash);
+		if (data[slot]!=0 && keys[slot]==hash) return data[slot];
+		if (data[slot+1]!=0 && keys[slot+1]==hash) return data[slot+1];
+		return MISS;
+	}
+
+	/**
+	 *	Stores a search result.
+	 *	@param hash		Zobrist hash of the position.
+	 *	@param score	Score found.
+	 *	@param bound	EXACT, LOWER or UPPER.
+	 *	@param depth	Remaining depth searched (0 to 255).
+	 *	@param move		Best move found, or -1.
+	 */
+	public void store(long hash, int score, int bound, int depth, int move){
+		long entry = ((long)score<<32)
+				| ((long)(move & 0xFFFF)<<16)
+				| ((depth & 0xFF)<<8)
+				| (generation<<2)
+				| bound;
+		int slot = bucket(hash);
+		long old = data[slot];
+		if (old==0 || keys[slot]==hash || generationOf(old)!=generation || depthOf(old)<=depth){
+			//demote the previous deep entry to the always-replace slot
+			if (old!=0 && keys[slot]!=hash){
+				keys[slot+1]=keys[slot];
+				data[slot+1]=old;
+			}
+			keys[slot]=hash;
+			data[slot]=entry;
+		}
+		else{
+			keys[slot+1]=hash;
+			data[slot+1]=entry;
+		}
+	}
+
+	/**
+	 *	Get the first slot of the bucket of a hash.
+	 */
+	private int bucket(long hash){
+		return ((int)(hash ^ (hash>>>32)) & bucketMask)<<1;
+	}
+
+	/**
+	 *	Get the score of an entry.
+	 *	@param entry Packed entry returned by probe().
+	 *	@return The score.
+	 */
+	public static int scoreOf(long entry){
+		return (int)(entry>>32);
+	}
+
+	/**
+	 *	Get the best move of an entry.
+	 *	@param entry Packed entry returned by probe().
+	 *	@return The cell index, or -1 if none was stored.
+	 */
+	public static int moveOf(long entry){
+		int move = (int)(entry>>>16) & 0xFFFF;
+		return move==0xFFFF ? -1 : move;
+	}
+
+	/**
+	 *	Get the depth of an entry.
+	 *	@param entry Packed entry returned by probe().
+	 *	@return The remaining depth searched.
+	 */
+	public static int depthOf(long entry){
+		return (int)(entry>>>8) & 0xFF;
+	}
+
+	/**
+	 *	Get the bound type of an entry.
+	 *	@param entry Packed entry returned by probe().
+	 *	@return EXACT, LOWER or UPPER.
+	 */
+	public static int boundOf(long entry){
+		return (int)entry & 3;
+	}
+
+	/**
+	 *	Get the generation of an entry.
+	 */
+	private static int generationOf(long entry){
+		return (int)(entry>>>2) & 0x3F;
+	}
+}
@@ -0,0 +1,285 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *	Parallel alpha-beta searcher for UltimateTicTacToe, run on a ForkJoinPool.
+ *
+ *	Nodes with enough depth left are split "young brothers wait" style: the
+ *	first move is searched alone to get a bound, then every other move is
+ *	forked as its own task and idle workers steal them. The tasks of a split
+ *	share its best score through an atomic value updated with compare-and-set,
+ *	so each task starts from the best bound found so far by its siblings,
+ *	and a beta cutoff found by one of them cancels the others.
+ */
+public class UltimateSearch{
+
+	/** Score of a win, wins further away score one less per ply. */
+	public static final int WIN = 100000;
+
+	/** Remaining depth from which a node forks its moves. */
+	private static final int SPLIT_DEPTH = 3;
+
+	/** The pool running the search tasks. */
+	private final ForkJoinPool pool;
+
+	/** Number of nodes searched by the current or last search. */
+	private final LongAdder nodes = new LongAdder();
+
+	/** Score of the move returned by the last search. */
+	private volatile int score;
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Creates a searcher running on the common ForkJoinPool.
+	 */
+	public UltimateSearch(){
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 *	Creates a searcher running on the given pool.
+	 *	@param pool The pool, its parallelism sets the number of threads used.
+	 */
+	public UltimateSearch(ForkJoinPool pool){
+		this.pool=pool;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Accessor(s) and Mutator(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the number of nodes searched by the last findMove().
+	 *	@return The node count.
+	 */
+	public long getNodes(){
+		return nodes.sum();
+	}
+
+	/**
+	 *	Get the score of the move returned by the last findMove(), for the
+	 *	symbol that was to move.
+	 *	@return The score, WIN minus the plies to the win for a forced win.
+	 */
+	public int getScore(){
+		return score;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Finds the best move for the symbol to move. The game is not changed.
+	 *	@param game		The position to search.
+	 *	@param depth	Search depth in plies (at least 1).
+	 *	@return The move, encoded as board*9+cell, or -1 if the game is over.
+	 */
+	public int findMove(UltimateTicTacToe game, int depth){
+		nodes.reset();
+		UltimateTicTacToe root = game.copy();
+		int moves[] = new int[81];
+		int n = root.getLegalMoves(moves);
+		if (n==0) return -1;
+
+		Split split = new Split(null,-WIN-1,WIN+1,-WIN-1,moves[0]);
+		if (n>1) pool.invoke(new SplitTask(root,moves,n,Math.max(1,depth),0,split));
+		score = split.getScore();
+		return split.getMove();
+	}
+
+	/**
+	 *	Searches a position, splitting it if enough depth is left.
+	 *	@param game		The position, the previous move did not win.
+	 *	@param depth	Remaining depth in plies.
+	 *	@param alpha	Score the symbol to move is already sure of.
+	 *	@param beta		Score the opponent is already sure of.
+	 *	@param ply		Distance from the root.
+	 *	@param parent	The split this search runs under, checked for cutoffs.
+	 *	@return The score for the symbol to move, meaningless if parent got cancelled.
+	 */
+	private int search(UltimateTicTacToe game, int depth, int alpha, int beta, int ply, Split parent){
+		nodes.increment();
+		if (depth==0) return game.evaluate();
+
+		int moves[] = new int[81];
+		int n = game.getLegalMoves(moves);
+		if (n==0) return 0;	//no move left and nobody won
+
+		if (depth<SPLIT_DEPTH || n==1) return sequential(game,moves,n,depth,alpha,beta,ply,parent);
+
+		//search the eldest brother alone, then split the others
+		int first = searchMove(game,moves[0],depth,alpha,beta,ply,parent);
+		if (first>=beta || parent.isCancelled()) return first;
+
+		Split split = new Split(parent,alpha,beta,first,moves[0]);
+		moves[0]=moves[--n];
+		new SplitTask(game,moves,n,depth,ply,split).invoke();
+		return split.getScore();
+	}
+
+	/**
+	 *	Searches the moves of a position one after the other.
+	 */
+	private int sequential(UltimateTicTacToe game, int moves[], int n, int depth, int alpha, int beta, int ply, Split parent){
+		int best=-WIN-1;
+		for (int i=0; i<n; i++){
+			int s = searchMove(game,moves[i],depth,alpha,beta,ply,parent);
+			if (s>best) best=s;
+			if (s>alpha) alpha=s;
+			if (alpha>=beta || parent.isCancelled()) break;
+		}
+		return best;
+	}
+
+	/**
+	 *	Plays a move, searches the resulting position and takes the move back.
+	 *	@return The score of the move for the symbol to move before it.
+	 */
+	private int searchMove(UltimateTicTacToe game, int move, int depth, int alpha, int beta, int ply, Split parent){
+		int s;
+		if (game.makeMove(move)) s=WIN-ply-1;
+		else s=-search(game,depth-1,-beta,-alpha,ply+1,parent);
+		game.undoMove();
+		return s;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Split point and tasks
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	A node whose moves are searched in parallel. The best score and move
+	 *	are packed in one atomic long, high half score and low half move, so
+	 *	both are always read and updated together without locking.
+	 */
+	private static class Split{
+
+		/** The split the node belongs to, null at the root. */
+		final Split parent;
+
+		/** Score the node's player was already sure of when it split. */
+		final int alpha;
+
+		/** Score beyond which the node is cut off. */
+		final int beta;
+
+		/** Best score and move found so far. */
+		final AtomicLong best;
+
+		/** Set when a move reaches beta, the remaining moves are not needed. */
+		volatile boolean cutoff;
+
+		Split(Split parent, int alpha, int beta, int score, int move){
+			this.parent=parent;
+			this.alpha=alpha;
+			this.beta=beta;
+			best = new AtomicLong(pack(score,move));
+		}
+
+		static long pack(int score, int move){
+			return ((long)score<<32) | (move & 0xFFFFFFFFL);
+		}
+
+		int getScore(){
+			return (int)(best.get()>>32);
+		}
+
+		int getMove(){
+			return (int)best.get();
+		}
+
+		/**
+		 *	Records the score of a move if it beats the best one so far.
+		 */
+		void report(int score, int move){
+			long current;
+			do{
+				current = best.get();
+				if (score<=(int)(current>>32)) return;
+			}while(!best.compareAndSet(current,pack(score,move)));
+			if (score>=beta) cutoff=true;
+		}
+
+		/**
+		 *	Checks whether this split or one of its parents got cut off.
+		 */
+		boolean isCancelled(){
+			for (Split s=this; s!=null; s=s.parent){
+				if (s.cutoff) return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 *	Forks one MoveTask per move of a split and waits for all of them.
+	 */
+	private class SplitTask extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		private final UltimateTicTacToe game;
+		private final int moves[];
+		private final int n;
+		private final int depth;
+		private final int ply;
+		private final Split split;
+
+		SplitTask(UltimateTicTacToe game, int moves[], int n, int depth, int ply, Split split){
+			this.game=game;
+			this.moves=moves;
+			this.n=n;
+			this.depth=depth;
+			this.ply=ply;
+			this.split=split;
+		}
+
+		protected void compute(){
+			List<MoveTask> tasks = new ArrayList<MoveTask>(n);
+			for (int i=0; i<n; i++) tasks.add(new MoveTask(game.copy(),moves[i],depth,ply,split));
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 *	Searches one move of a split on its own copy of the position.
+	 */
+	private class MoveTask extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		private final UltimateTicTacToe game;
+		private final int move;
+		private final int depth;
+		private final int ply;
+		private final Split split;
+
+		MoveTask(UltimateTicTacToe game, int move, int depth, int ply, Split split){
+			this.game=game;
+			this.move=move;
+			this.depth=depth;
+			this.ply=ply;
+			this.split=split;
+		}
+
+		protected void compute(){
+			if (split.isCancelled()) return;
+			//start from the latest bound found by the siblings
+			int alpha = Math.max(split.alpha,split.getScore());
+			int s = searchMove(game,move,depth,alpha,split.beta,ply,split);
+			if (!split.isCancelled()) split.report(s,move);
+		}
+	}
+}
@@ -0,0 +1,411 @@
+import java.util.SplittableRandom;
+
+/**
+ *	Ultimate TicTacToe main game class. The 9x9 grid is made of 9 small 3x3
+ *	boards laid out as a big 3x3 board. Winning a small board takes the
+ *	matching cell of the big board, and the game is won with 3 small boards
+ *	in a row. The cell played in a small board sends the opponent to the
+ *	small board at the same position on the big board; if that board is
+ *	already won or full, the opponent may play on any open board.
+ *
+ *	Boards and cells are numbered as in BitBoard, each small board being
+ *	kept as one 9-bit mask per symbol.
+ */
+public class UltimateTicTacToe{
+
+	/** Value of getActiveBoard() when any open board may be played. */
+	public static final int ANY_BOARD = -1;
+
+	/** Search depth of each difficulty level, 0 plays randomly. */
+	private static final int SEARCH_DEPTHS[] = {0,2,4,6,8};
+
+	/** Whether it is the current player's turn or opposing player/computer. */
+	private boolean playerTurn;
+
+	/** Whether "X" is the symbol to draw next, else "O". */
+	private boolean xTurn;
+
+	/** Cells taken by "X" on each small board. */
+	private final int xCells[] = new int[9];
+
+	/** Cells taken by "O" on each small board. */
+	private final int oCells[] = new int[9];
+
+	/** Small boards won by "X". */
+	private int xBoards;
+
+	/** Small boards won by "O". */
+	private int oBoards;
+
+	/** Small boards that are won or full and cannot be played anymore. */
+	private int closedBoards;
+
+	/** The small board the next move must be played on, or ANY_BOARD. */
+	private int activeBoard;
+
+	/** Moves played so far (board*9+cell), in order. */
+	private final int history[] = new int[81];
+
+	/** Active board before each move of the history. */
+	private final int activeHistory[] = new int[81];
+
+	/** Number of moves in the history. */
+	private int moveCount;
+
+	/** Determines the level of computation to be employed by the computer. */
+	private int difficulty;
+
+	/** Searcher used by the computer, created on first use. */
+	private UltimateSearch searcher;
+
+	/** Random stream of this game's choices, never shared with another game. */
+	private SplittableRandom rnd = new SplittableRandom();
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Default constructor, calls gameReset() during initialization.
+	 */
+	public UltimateTicTacToe(){
+		setDifficulty(0);
+		gameReset();
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Accessor(s) and Mutator(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get whether it is the current player's turn.
+	 *	@return Whether it is the current player's turn.
+	 */
+	public boolean isPlayerTurn(){
+		return playerTurn;
+	}
+
+	/**
+	 *	Sets the current player's turn
+	 *	@param isPlayerTurn Whether it is the current player's turn
+	 */
+	public void setPlayerTurn(boolean isPlayerTurn){
+		playerTurn=isPlayerTurn;
+	}
+
+	/**
+	 *	Get the current symbol, the symbol to be drawn next onto the board.
+	 *	@return The current turn's symbol, "X" or "O".
+	 */
+	public String getCurrentSymbol(){
+		return xTurn ? "X" : "O";
+	}
+
+	/**
+	 *	Get the current game difficulty level (higher = smarter)
+	 *	@return The current difficulty level
+	 */
+	public int getDifficulty(){
+		return difficulty;
+	}
+
+	/**
+	 *	Reseeds the random choices of the computer, so that a game can be
+	 *	played again move for move.
+	 *	@param seed The new seed.
+	 */
+	public void setSeed(long seed){
+		rnd = new SplittableRandom(seed);
+	}
+
+	/**
+	 *	Set the current game difficulty level (higher = smarter)
+	 *	@param newLevel The new difficulty level (0 to 4, out of range values are clamped)
+	 */
+	public void setDifficulty(int newLevel){
+		if (newLevel<0) newLevel=0;
+		if (newLevel>=SEARCH_DEPTHS.length) newLevel=SEARCH_DEPTHS.length-1;
+		difficulty=newLevel;
+	}
+
+	/**
+	 *	Gets the symbol for the specified cell of the 9x9 grid.
+	 *	@param row	Row of the cell (0 to 8).
+	 *	@param col	Column of the cell (0 to 8).
+	 *	@return Symbol of the specified cell.
+	 */
+	public String getCellSymbol(int row, int col){
+		if (row<0 || row>8 || col<0 || col>8) throw new IndexOutOfBoundsException();
+		int board = (row/3)*3+col/3;
+		int bit = BitBoard.bit(row%3,col%3);
+		if ((xCells[board] & bit)!=0) return "X";
+		if ((oCells[board] & bit)!=0) return "O";
+		return " ";
+	}
+
+	/**
+	 *	Get the entire 9x9 cell grid as a copy.
+	 *	@return 2-dimensional String array, 9 rows of 9 columns.
+	 */
+	public String[][] getCells(){
+		String cells[][] = new String[9][9];
+		for (int r=0; r<9; r++){
+			for (int c=0; c<9; c++){
+				cells[r][c]=getCellSymbol(r,c);
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 *	Get the symbol that won a small board.
+	 *	@param board The small board (0 to 8).
+	 *	@return "X", "O", or " " if the board is not won.
+	 */
+	public String getBoardWinner(int board){
+		if ((xBoards & (1<<board))!=0) return "X";
+		if ((oBoards & (1<<board))!=0) return "O";
+		return " ";
+	}
+
+	/**
+	 *	Get the small board the next move must be played on.
+	 *	@return The board (0 to 8), or ANY_BOARD.
+	 */
+	public int getActiveBoard(){
+		return activeBoard;
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Resets the game to its default state: player's turn, "X" to play,
+	 *	all cells vacant. Game difficulty however is not changed.
+	 */
+	public void gameReset(){
+		setPlayerTurn(true);
+		xTurn=true;
+		for (int b=0; b<9; b++){
+			xCells[b]=0;
+			oCells[b]=0;
+		}
+		xBoards=0;
+		oBoards=0;
+		closedBoards=0;
+		activeBoard=ANY_BOARD;
+		moveCount=0;
+	}
+
+	/**
+	 *	Makes a copy of the position, without the difficulty and searcher.
+	 *	@return A copy of this game.
+	 */
+	public UltimateTicTacToe copy(){
+		UltimateTicTacToe game = new UltimateTicTacToe();
+		game.playerTurn=playerTurn;
+		game.xTurn=xTurn;
+		System.arraycopy(xCells,0,game.xCells,0,9);
+		System.arraycopy(oCells,0,game.oCells,0,9);
+		game.xBoards=xBoards;
+		game.oBoards=oBoards;
+		game.closedBoards=closedBoards;
+		game.activeBoard=activeBoard;
+		System.arraycopy(history,0,game.history,0,moveCount);
+		System.arraycopy(activeHistory,0,game.activeHistory,0,moveCount);
+		game.moveCount=moveCount;
+		return game;
+	}
+
+	/**
+	 *	Place the current symbol onto the specified row and column of the 9x9
+	 *	grid. Returns false if the move is not legal: the cell is taken, or is
+	 *	not on the active board. Place move also switches the current symbol
+	 *	and the player's turn.
+	 *	@param	row Row of the cell (0 to 8).
+	 *	@param	col Column of the cell (0 to 8).
+	 *	@return	Whether the move is successful.
+	 */
+	public boolean placeMove(int row, int col){
+		if (row<0 || row>8 || col<0 || col>8) throw new IndexOutOfBoundsException();
+		int board = (row/3)*3+col/3;
+		int cell = (row%3)*3+col%3;
+		if (!isLegal(board,cell)) return false;
+		makeMove(board*9+cell);
+		switchPlayer();
+		return true;
+	}
+
+	/**
+	 *	Switches the current player's turn. Usually used at the beginning to
+	 *	change starting player.
+	 */
+	public void switchPlayer(){
+		setPlayerTurn(!isPlayerTurn());
+	}
+
+	/**
+	 *	Checks whether a move may be played.
+	 *	@param board	The small board (0 to 8).
+	 *	@param cell		The cell of the small board (0 to 8).
+	 *	@return Whether the move is legal.
+	 */
+	public boolean isLegal(int board, int cell){
+		if (checkWin()) return false;
+		if ((closedBoards & (1<<board))!=0) return false;
+		if (activeBoard!=ANY_BOARD && activeBoard!=board) return false;
+		return ((xCells[board]|oCells[board]) & (1<<cell))==0;
+	}
+
+	/**
+	 *	Check whether a winning state is achieved, that is 3 small boards won
+	 *	by the same symbol in a row.
+	 *	@return Whether a winning state is found.
+	 */
+	public boolean checkWin(){
+		return BitBoard.isWin(xBoards) || BitBoard.isWin(oBoards);
+	}
+
+	/**
+	 *	Checks whether the game has reached a draw state: no move is left
+	 *	and nobody won.
+	 *	@return Whether a draw state is found.
+	 */
+	public boolean checkDraw(){
+		return closedBoards==BitBoard.FULL && !checkWin();
+	}
+
+	/**
+	 *	The computer will compute a move and calls the placeMove method.
+	 */
+	public void computeMove(){
+		int moves[] = new int[81];
+		int n = getLegalMoves(moves);
+		if (n==0) return;
+
+		int move;
+		if (SEARCH_DEPTHS[getDifficulty()]==0){
+			move = moves[rnd.nextInt(n)];	//noob (randomly place moves)
+		}
+		else{
+			if (searcher==null) searcher = new UltimateSearch();
+			move = searcher.findMove(this,SEARCH_DEPTHS[getDifficulty()]);
+		}
+		int board = move/9, cell = move%9;
+		placeMove((board/3)*3+cell/3, (board%3)*3+cell%3);
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Method(s) used by the search
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Checks whether "X" is to move.
+	 *	@return Whether "X" is the current symbol.
+	 */
+	boolean isXTurn(){
+		return xTurn;
+	}
+
+	/**
+	 *	Collects the legal moves, encoded as board*9+cell.
+	 *	@param moves Array receiving the moves, at least 81 long.
+	 *	@return The number of moves stored, 0 if the game is over.
+	 */
+	int getLegalMoves(int moves[]){
+		if (checkWin()) return 0;
+		int n=0;
+		for (int b=0; b<9; b++){
+			if (activeBoard!=ANY_BOARD && activeBoard!=b) continue;
+			if ((closedBoards & (1<<b))!=0) continue;
+			int vacant = ~(xCells[b]|oCells[b]) & BitBoard.FULL;
+			for (int c=0; c<9; c++){
+				if ((vacant & (1<<c))!=0) moves[n++]=b*9+c;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 *	Plays a legal move for the current symbol, without switching the
+	 *	player's turn. Used by the search together with undoMove().
+	 *	@param move The move, board*9+cell.
+	 *	@return Whether the move wins the game.
+	 */
+	boolean makeMove(int move){
+		int board = move/9, bit = 1<<(move%9);
+		activeHistory[moveCount]=activeBoard;
+		history[moveCount++]=move;
+
+		if (xTurn){
+			xCells[board]|=bit;
+			if (BitBoard.isWin(xCells[board])) xBoards|=1<<board;
+		}
+		else{
+			oCells[board]|=bit;
+			if (BitBoard.isWin(oCells[board])) oBoards|=1<<board;
+		}
+		if (((xBoards|oBoards) & (1<<board))!=0 || (xCells[board]|oCells[board])==BitBoard.FULL)
+			closedBoards|=1<<board;
+
+		int next = move%9;
+		activeBoard = ((closedBoards & (1<<next))!=0) ? ANY_BOARD : next;
+		xTurn=!xTurn;
+		return checkWin();
+	}
+
+	/**
+	 *	Takes the last move made with makeMove() back.
+	 */
+	void undoMove(){
+		int move = history[--moveCount];
+		int board = move/9, bit = ~(1<<(move%9));
+		xTurn=!xTurn;
+		if (xTurn) xCells[board]&=bit;
+		else oCells[board]&=bit;
+		xBoards&=~(1<<board);
+		oBoards&=~(1<<board);
+		closedBoards&=~(1<<board);
+		activeBoard=activeHistory[moveCount];
+	}
+
+	/**
+	 *	Scores the position for the symbol to move: small boards won, lines
+	 *	of the big board still open, and 2-in-a-row threats on open boards.
+	 *	@return The heuristic score, positive if the symbol to move is ahead.
+	 */
+	int evaluate(){
+		int score = side(xBoards,oBoards,xCells,oCells) - side(oBoards,xBoards,oCells,xCells);
+		return xTurn ? score : -score;
+	}
+
+	/**
+	 *	Scores one symbol's position, see evaluate().
+	 */
+	private int side(int mineBoards, int theirBoards, int mine[], int theirs[]){
+		int score=0;
+		int blocked = theirBoards | (closedBoards & ~mineBoards);
+		for (int i=0; i<BitBoard.LINES.length; i++){
+			int line = BitBoard.LINES[i];
+			if ((line & blocked)!=0) continue;
+			int n = BitBoard.count(line & mineBoards);
+			score += n==2 ? 40 : n;
+		}
+		score += 10*BitBoard.count(mineBoards);
+		if ((mineBoards & BitBoard.CENTER)!=0) score+=5;
+
+		for (int b=0; b<9; b++){
+			if ((closedBoards & (1<<b))!=0) continue;
+			for (int i=0; i<BitBoard.LINES.length; i++){
+				int line = BitBoard.LINES[i];
+				if ((line & theirs[b])==0 && BitBoard.count(line & mine[b])==2) score+=2;
+			}
+		}
+		return score;
+	}
+}
@@ -0,0 +1,178 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ *	Learned values of TicTacToe positions, used by the learned difficulty
+ *	level and produced by ValueTrainer.
+ *
+ *	A value rates a position just after a move, for the player who made
+ *	it: from -SCALE (sure loss) to SCALE (sure win). Positions are stored
+ *	once per symmetry class, keyed by keyOf(), so a move is chosen with one
+ *	lookup per vacant cell.
+ *
+ *	The binary file holds a header (magic, version, entry count) followed by
+ *	each entry as an int key and a short value, big-endian.
+ */
+public class ValueTable{
+
+	/** Name of the resource holding the default table. */
+	public static final String DEFAULT_RESOURCE = "values.bin";
+
+	/** Value of a sure win, values are stored as shorts. */
+	public static final int SCALE = 32767;
+
+	/** "TTTV", first int of a table file. */
+	private static final int MAGIC = 0x54545456;
+
+	/** Version of the file format. */
+	private static final int VERSION = 1;
+
+	/** Number of possible keys. */
+	private static final int KEYS = 1<<(2*BitBoard.SIZE);
+
+	/** The default table, loaded on first use. */
+	private static ValueTable defaultTable;
+
+	/** Values by canonical key. */
+	private final IntMap values = new IntMap(1024);
+
+
+	//--------------------------------------------------------------------------
+	//	Constructor(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Creates an empty table, every position valued 0.
+	 */
+	public ValueTable(){
+	}
+
+	/**
+	 *	Reads a table.
+	 *	@param in The table file, closed when read.
+	 *	@throws IOException If the table cannot be read or is not a value table.
+	 */
+	public ValueTable(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		try{
+			if (data.readInt()!=MAGIC || data.readInt()!=VERSION) throw new IOException("Not a value table");
+			int n = data.readInt();
+			for (int i=0; i<n; i++){
+				int key = data.readInt();
+				put(key,data.readShort());
+			}
+		}
+		finally{
+			data.close();
+		}
+	}
+
+
+	//--------------------------------------------------------------------------
+	//	Other method(s)
+	//--------------------------------------------------------------------------
+
+	/**
+	 *	Get the default table: the file named by the "ttt.values" property
+	 *	if set, else the DEFAULT_RESOURCE next to the engine classes.
+	 *	@return The default table.
+	 *	@throws IllegalStateException If the file or resource is missing or
+	 *								  cannot be read.
+	 */
+	public static synchronized ValueTable getDefault(){
+		if (defaultTable==null){
+			String file = System.getProperty("ttt.values");
+			String source = file!=null ? "value table file "+file : "value table resource "+DEFAULT_RESOURCE;
+			try{
+				InputStream in = file!=null ? new FileInputStream(file) : ValueTable.class.getResourceAsStream(DEFAULT_RESOURCE);
+				if (in==null) throw new IllegalStateException(source+" not found next to the engine classes");
+				defaultTable = new ValueTable(in);
+			}
+			catch(IOException e){
+				throw new IllegalStateException("Cannot read "+source,e);
+			}
+		}
+		return defaultTable;
+	}
+
+	/**
+	 *	Get the key of a position: BitBoard.key of the canonical form of
+	 *	the cells (see Symmetry.canonical).
+	 *	@param mover	Cells of the player who just moved.
+	 *	@param other	Cells of the other player.
+	 *	@return The key.
+	 */
+	public static int keyOf(int mover, int other){
+		int sym = Symmetry.canonical(mover,other);
+		return BitBoard.key(Symmetry.transform(sym,mover),Symmetry.transform(sym,other));
+	}
+
+	/**
+	 *	Get the number of positions valued.
+	 *	@return The size of the table.
+	 */
+	public int size(){
+		return values.size();
+	}
+
+	/**
+	 *	Get the value of a position by key.
+	 *	@param key The key (see keyOf).
+	 *	@return The value, 0 if the position is not in the table.
+	 */
+	public int getValue(int key){
+		return values.get(key,0);
+	}
+
+	/**
+	 *	Sets the value of a position.
+	 *	@param key		The key (see keyOf).
+	 *	@param value	The value, clamped to -SCALE..SCALE.
+	 */
+	public void put(int key, int value){
+		values.put(key,Math.max(-SCALE,Math.min(SCALE,value)));
+	}
+
+	/**
+	 *	Get the moves leading to the best valued position.
+	 *	@param mine		Cells of the player to move.
+	 *	@param theirs	Cells of the other player.
+	 *	@return Bitmask of the best moves, 0 if no cell is vacant.
+	 */
+	public int getBestMoves(int mine, int theirs){
+		int vacant = BitBoard.FULL & ~(mine|theirs);
+		int best=0, bestValue=Integer.MIN_VALUE;
+		for (int bits=vacant; bits!=0; bits&=bits-1){
+			int bit = bits & -bits;
+			int value = getValue(keyOf(mine|bit,theirs));
+			if (value>bestValue){
+				bestValue=value;
+				best=bit;
+			}
+			else if (value==bestValue) best|=bit;
+		}
+		return best;
+	}
+
+	/**
+	 *	Writes the table.
+	 *	@param out Receives the table file, not closed.
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(size());
+		for (int key=0; key<KEYS; key++){
+			if (values.containsKey(key)){
+				data.writeInt(key);
+				data.writeShort(values.get(key,0));
+			}
+		}
+		data.flush();
+	}
+}
@@ -0,0 +1,213 @@
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *	Offline trainer of the ValueTable, by temporal-difference learning of
+ *	position values over self-play games.
+ *
+ *	The learner picks the move leading to the best valued position, or a
+ *	random move with probability epsilon to explore. After each of its
+ *	greedy moves, the value of the position it left on its previous move
+ *	is moved towards the value of the new one (TD(0) on the positions
+ *	after the learner's moves); the last position of a game is moved
+ *	towards the result, 1 for a win, -1 for a loss and 0 for a draw.
+ *
+ *	Games are played against itself, the learner then learning for both
+ *	players, or against difficulty levels 0 to 3 of TicTacToe. Threads
+ *	share one table of values and update it without locking: updates lost
+ *	to a race are rare and only slow learning down a little.
+ *
+ *	Usage: java ValueTrainer [games] [threads] [seed] [file]
+ */
+public class ValueTrainer{
+
+	/** Games played when none is given. */
+	public static final long DEFAULT_GAMES = 1000000;
+
+	/** Highest difficulty level played against. */
+	private static final int MAX_OPPONENT = 3;
+
+	/** Number of possible keys (see ValueTable.keyOf). */
+	private static final int KEYS = 1<<(2*BitBoard.SIZE);
+
+	/** Step size of the updates. */
+	private final double alpha;
+
+	/** Probability of an exploring move. */
+	private final double epsilon;
+
+	/** Values by key, from -1 to 1. */
+	private final float values[] = new float[KEYS];
+
+	/** Whether a key was reached. */
+	private final boolean seen[] = new boolean[KEYS];
+
+	/**
+	 *	Main program entry: trains a table and writes it.
+	 *	@param args	[games] [threads] [seed] [file]
+	 */
+	public static void main(String args[]) throws Exception {
+		long games = args.length>0 ? Long.parseLong(args[0]) : DEFAULT_GAMES;
+		int threads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length>2 ? Long.parseLong(args[2]) : System.currentTimeMillis();
+		String file = args.length>3 ? args[3] : ValueTable.DEFAULT_RESOURCE;
+
+		long start = System.nanoTime();
+		ValueTable table = new ValueTrainer(0.1,0.1).train(games,threads,seed);
+		OutputStream out = new FileOutputStream(file);
+		try{
+			table.write(out);
+		}
+		finally{
+			out.close();
+		}
+		System.out.println(games + " games on " + threads + " threads, seed " + seed + ", in "
+			+ (System.nanoTime()-start)/1000000 + " ms: " + table.size() + " positions written to " + file);
+	}
+
+	/**
+	 *	Creates a trainer, all values starting at 0.
+	 *	@param alpha	Step size of the updates, from 0 to 1.
+	 *	@param epsilon	Probability of an exploring move, from 0 to 1.
+	 */
+	public ValueTrainer(double alpha, double epsilon){
+		this.alpha=alpha;
+		this.epsilon=epsilon;
+	}
+
+	/**
+	 *	Plays training games, each thread taking an equal share.
+	 *	@param games	Number of games.
+	 *	@param threads	Number of threads.
+	 *	@param seed		Seed the random streams of the threads are split from.
+	 *	@return The values learned so far.
+	 */
+	public ValueTable train(long games, int threads, long seed) throws Exception {
+		threads = Math.max(1,threads);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try{
+			SplittableRandom root = new SplittableRandom(seed);
+			List<Future<?>> parts = new ArrayList<Future<?>>();
+			for (int t=0; t<threads; t++){
+				final long n = games*(t+1)/threads - games*t/threads;
+				final SplittableRandom rnd = root.split();
+				parts.add(pool.submit(() -> play(n,rnd)));
+			}
+			for (Future<?> part : parts) part.get();
+		}
+		finally{
+			pool.shutdown();
+		}
+		return toTable();
+	}
+
+	/**
+	 *	Converts the values reached so far to a table.
+	 *	@return The table.
+	 */
+	public ValueTable toTable(){
+		ValueTable table = new ValueTable();
+		for (int key=0; key<KEYS; key++){
+			if (seen[key]) table.put(key,Math.round(values[key]*ValueTable.SCALE));
+		}
+		return table;
+	}
+
+	/**
+	 *	Plays training games on one thread.
+	 */
+	private void play(long games, SplittableRandom rnd){
+		TicTacToe game = new TicTacToe();
+		for (long g=0; g<games; g++){
+			//-1 for self-play
+			int opponent = rnd.nextInt(MAX_OPPONENT+2)-1;
+			game.gameReset();
+			game.setSeed(rnd.nextLong());
+			game.setDifficulty(Math.max(0,opponent));
+			playGame(game,opponent<0,rnd.nextBoolean(),rnd);
+		}
+	}
+
+	/**
+	 *	Plays one game, updating the values after the learner's moves.
+	 *	@param game			The game, reset.
+	 *	@param selfPlay		Whether the learner plays both players.
+	 *	@param learnerX		Whether the learner plays "X" if not selfPlay.
+	 *	@param rnd			Source of the learner's random choices.
+	 */
+	private void playGame(TicTacToe game, boolean selfPlay, boolean learnerX, SplittableRandom rnd){
+		//key of the learner's last position, for "X" and "O"
+		int last[] = {-1,-1};
+		while (true){
+			Position p = game.getPosition();
+			int side = p.isXToMove() ? 0 : 1;
+			if (selfPlay || p.isXToMove()==learnerX){
+				int mine = p.getMine(), theirs = p.getTheirs();
+				int cell;
+				boolean explore = rnd.nextDouble()<epsilon;
+				if (explore) cell = randomCell(p.getVacant(),rnd);
+				else cell = randomCell(bestMoves(mine,theirs),rnd);
+
+				int key = ValueTable.keyOf(mine | 1<<cell,theirs);
+				//exploring moves teach nothing about the previous position
+				if (last[side]>=0 && !explore) update(last[side],values[key]);
+				last[side]=key;
+				seen[key]=true;
+				game.placeMove(cell/3,cell%3);
+			}
+			else game.computeMove();
+
+			if (game.checkWin()){
+				//side just won
+				if (last[side]>=0) update(last[side],1);
+				if (last[1-side]>=0) update(last[1-side],-1);
+				return;
+			}
+			if (game.checkDraw()){
+				if (last[0]>=0) update(last[0],0);
+				if (last[1]>=0) update(last[1],0);
+				return;
+			}
+		}
+	}
+
+	/**
+	 *	Moves the value of a position towards a target.
+	 */
+	private void update(int key, float target){
+		values[key] += alpha*(target-values[key]);
+	}
+
+	/**
+	 *	Get the moves leading to the best valued position.
+	 */
+	private int bestMoves(int mine, int theirs){
+		int vacant = BitBoard.FULL & ~(mine|theirs);
+		int best=0;
+		float bestValue=Float.NEGATIVE_INFINITY;
+		for (int bits=vacant; bits!=0; bits&=bits-1){
+			int bit = bits & -bits;
+			float value = values[ValueTable.keyOf(mine|bit,theirs)];
+			if (value>bestValue){
+				bestValue=value;
+				best=bit;
+			}
+			else if (value==bestValue) best|=bit;
+		}
+		return best;
+	}
+
+	/**
+	 *	Picks a random cell of a mask, which must not be 0.
+	 */
+	private static int randomCell(int mask, SplittableRandom rnd){
+		for (int n=rnd.nextInt(BitBoard.count(mask)); n>0; n--) mask&=mask-1;
+		return Integer.numberOfTrailingZeros(mask);
+	}
+}
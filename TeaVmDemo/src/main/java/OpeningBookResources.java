@@ -0,0 +1,14 @@
+import org.teavm.classlib.ResourceSupplier;
+import org.teavm.classlib.ResourceSupplierContext;
+
+/**
+ * Tells TeaVM to embed the opening book of the engine in the JavaScript, so that
+ * {@link OpeningBook#getDefault()} finds it in the page as it does on the JVM.
+ */
+public class OpeningBookResources implements ResourceSupplier {
+
+    @Override
+    public String[] supplyResources(ResourceSupplierContext context) {
+        return new String[] {OpeningBook.DEFAULT_RESOURCE};
+    }
+}
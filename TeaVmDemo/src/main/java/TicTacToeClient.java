@@ -0,0 +1,160 @@
+import java.util.Random;
+
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+
+/**
+ * Browser front end of the TicTacToe engine: TeaVM compiles it together with the engine, so the computer's
+ * moves are computed in the page. The page offers the levels that only compute (0 to 3): the higher ones are
+ * strategies that {@link TicTacToe} loads by name, which TeaVM does not translate. The game draws its random
+ * choices from {@link Random}, as TeaVM has no SplittableRandom, and the opening book of the God Mode level is
+ * embedded in the JavaScript by {@link OpeningBookResources}.
+ *
+ * The engine classes live in the default package, which classes of a named package cannot import, hence the
+ * default package here too.
+ */
+public class TicTacToeClient {
+
+    /** Levels offered in the page, with their names as in the console game. */
+    private static final int[] LEVELS = {0, 1, 2, 3};
+    private static final String[] LEVEL_NAMES = {"Noob", "Normal", "God Mode", "Perfect"};
+
+    private final HTMLDocument document = HTMLDocument.current();
+    private final TicTacToe game = new TicTacToe(new BrowserRandom(new Random()));
+    private final HTMLElement[] cells = new HTMLElement[9];
+    private HTMLElement status;
+    private HTMLElement levelLabel;
+
+    public static void main(String[] args) {
+        new TicTacToeClient().start();
+    }
+
+    private void start() {
+        HTMLElement root = document.getElementById("ttt");
+        if (root == null) {
+            root = document.createElement("div");
+            document.getBody().appendChild(root);
+        }
+
+        HTMLElement board = document.createElement("div");
+        board.setAttribute("class", "board");
+        for (int i = 0; i < cells.length; i++) {
+            final int cell = i;
+            HTMLElement button = document.createElement("button");
+            button.setAttribute("class", "cell");
+            button.addEventListener("click", evt -> playerMove(cell));
+            board.appendChild(button);
+            cells[i] = button;
+        }
+
+        HTMLElement levels = document.createElement("div");
+        levels.setAttribute("class", "levels");
+        levels.appendChild(document.createTextNode("Level: "));
+        for (int i = 0; i < LEVELS.length; i++) {
+            final int level = LEVELS[i];
+            final String name = LEVEL_NAMES[i];
+            HTMLElement button = document.createElement("button");
+            button.appendChild(document.createTextNode(name));
+            button.addEventListener("click", evt -> {
+                game.setDifficulty(level);
+                levelLabel.setInnerHTML(name);
+            });
+            levels.appendChild(button);
+        }
+        levelLabel = document.createElement("span");
+        levelLabel.setAttribute("class", "level");
+        levels.appendChild(levelLabel);
+
+        HTMLElement controls = document.createElement("div");
+        controls.setAttribute("class", "controls");
+        controls.appendChild(newGameButton("You start", false));
+        controls.appendChild(newGameButton("Computer starts", true));
+
+        status = document.createElement("div");
+        status.setAttribute("class", "status");
+
+        root.appendChild(levels);
+        root.appendChild(controls);
+        root.appendChild(board);
+        root.appendChild(status);
+
+        game.setDifficulty(LEVELS[0]);
+        levelLabel.setInnerHTML(LEVEL_NAMES[0]);
+        newGame(false);
+    }
+
+    private HTMLElement newGameButton(String label, final boolean computerFirst) {
+        HTMLElement button = document.createElement("button");
+        button.appendChild(document.createTextNode(label));
+        button.addEventListener("click", evt -> newGame(computerFirst));
+        return button;
+    }
+
+    private void newGame(boolean computerFirst) {
+        game.gameReset();
+        if (computerFirst) {
+            game.switchPlayer();
+            game.computeMove();
+        }
+        update();
+    }
+
+    private void playerMove(int cell) {
+        if (isOver() || !game.isPlayerTurn()) {
+            return;
+        }
+        if (!game.placeMove(cell / 3, cell % 3)) {
+            return;
+        }
+        if (!isOver()) {
+            game.computeMove();
+        }
+        update();
+    }
+
+    private boolean isOver() {
+        return game.checkWin() || game.checkDraw();
+    }
+
+    private void update() {
+        for (int i = 0; i < cells.length; i++) {
+            String symbol = game.getCellSymbol(i / 3, i % 3);
+            cells[i].setInnerHTML(symbol.equals(" ") ? "&nbsp;" : symbol);
+        }
+        if (game.checkWin()) {
+            //the side to move is the one that lost
+            status.setInnerHTML(game.isPlayerTurn() ? "Computer wins" : "You win");
+        } else if (game.checkDraw()) {
+            status.setInnerHTML("Draw");
+        } else {
+            status.setInnerHTML("Your move (" + game.getCurrentSymbol() + ")");
+        }
+    }
+
+    /**
+     * Random choices of the game, from a {@link Random}.
+     */
+    private static class BrowserRandom implements RandomSource {
+
+        private final Random random;
+
+        BrowserRandom(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return random.nextInt(bound);
+        }
+
+        @Override
+        public long nextLong() {
+            return random.nextLong();
+        }
+
+        @Override
+        public RandomSource split() {
+            return new BrowserRandom(new Random(random.nextLong()));
+        }
+    }
+}
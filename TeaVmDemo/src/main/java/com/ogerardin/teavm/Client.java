@@ -1,14 +0,0 @@
-package com.ogerardin.teavm;
-
-import org.teavm.jso.dom.html.HTMLDocument;
-import org.teavm.jso.dom.html.HTMLElement;
-
-public class Client {
-
-    public static void main(String[] args) {
-        HTMLDocument document = HTMLDocument.current();
-        HTMLElement div = document.createElement("div");
-        div.appendChild(document.createTextNode("Hello Sfeir !"));
-        document.getBody().appendChild(div);
-    }
-}
@@ -31,7 +31,16 @@
 
 package jstojava;
 
+import java.nio.IntBuffer;
+import java.util.IntSummaryStatistics;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
 public class Calculator {
+    // arrays shorter than this are aggregated on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    
     private int a = 0;
     private int b = 0; // assume b > a
     
@@ -44,14 +53,203 @@ public class Calculator {
         return a + b;
     }
     
+    /**
+     * Returns the number of integers from a to b, 0 if b < a.
+     */
+    public long getRangeSize() {
+        return Math.max(0L, (long) b - a + 1);
+    }
+    
     public int [] getNumInRange() {    
-        int x = a;
-        int len = (b - a) + 1;
+        long len = getRangeSize();
+        if (len > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Range too large for an array: " + len);
+        }
+        return getNumInRange(0, (int) len);
+    }
+    
+    /**
+     * Returns part of the range, for callers paging through it.
+     * @param offset index of the first number, from 0
+     * @param length maximum count of numbers; fewer are returned at the end
+     * of the range
+     */
+    public int [] getNumInRange(long offset, int length) {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Negative offset or length");
+        }
+        int len = (int) Math.max(0, Math.min(length, getRangeSize() - offset));
         int [] range = new int [len];
+        int x = (int) (a + offset);
         for (int i = 0; i < len; i++) {
-            range[i]= x++;
-            System.out.println("i: " + i + " ; range[i]: " + range[i]);
+            range[i] = x++;
         }
         return range;
     }
+    
+    /**
+     * Fills a buffer with the range from an offset, as far as the buffer
+     * or the range goes. A direct buffer keeps large ranges off the heap.
+     * @return the count of numbers put, from the buffer position
+     */
+    public int fillRange(IntBuffer buffer, long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Negative offset");
+        }
+        int len = (int) Math.max(0, Math.min(buffer.remaining(), getRangeSize() - offset));
+        int x = (int) (a + offset);
+        for (int i = 0; i < len; i++) {
+            buffer.put(x++);
+        }
+        return len;
+    }
+    
+    /**
+     * Iterates over the range without storing it. Later calls to setNums
+     * do not change it.
+     */
+    public PrimitiveIterator.OfInt rangeIterator() {
+        final int first = a;
+        final long size = getRangeSize();
+        return new PrimitiveIterator.OfInt() {
+            private long i = 0;
+            
+            public boolean hasNext() {
+                return i < size;
+            }
+            
+            public int nextInt() {
+                if (i >= size) {
+                    throw new NoSuchElementException();
+                }
+                return (int) (first + i++);
+            }
+        };
+    }
+    
+    public IntStream rangeStream() {
+        return getRangeSize() == 0 ? IntStream.empty() : IntStream.rangeClosed(a, b);
+    }
+    
+    // Aggregates of the range from a to b, in closed form
+    
+    public long getRangeSum() {
+        long n = getRangeSize();
+        long ends = (long) a + b;
+        // one of n and a + b is even when n > 0
+        return n % 2 == 0 ? Math.multiplyExact(n / 2, ends) : Math.multiplyExact(n, ends / 2);
+    }
+    
+    public int getRangeMin() {
+        if (getRangeSize() == 0) {
+            throw new NoSuchElementException("Empty range");
+        }
+        return a;
+    }
+    
+    public int getRangeMax() {
+        if (getRangeSize() == 0) {
+            throw new NoSuchElementException("Empty range");
+        }
+        return b;
+    }
+    
+    /**
+     * Returns the mean of the range, NaN if it is empty.
+     */
+    public double getRangeMean() {
+        return getRangeSize() == 0 ? Double.NaN : ((double) a + b) / 2;
+    }
+    
+    /**
+     * Splits the range into equal-width bins and counts the numbers in
+     * each, as histogram(values, a, b, bins) would.
+     */
+    public long [] getRangeHistogram(int bins) {
+        if (bins <= 0) {
+            throw new IllegalArgumentException("Bins must be positive");
+        }
+        long n = getRangeSize();
+        long [] counts = new long [bins];
+        if (n == 0) {
+            return counts;
+        }
+        // bin k holds offsets from ceil(k * n / bins) to ceil((k + 1) * n / bins) - 1
+        long start = 0;
+        for (int k = 0; k < bins; k++) {
+            long end = ceilDiv((k + 1) * n, bins);
+            counts[k] = end - start;
+            start = end;
+        }
+        return counts;
+    }
+    
+    // Aggregates of supplied arrays, in parallel for large arrays
+    
+    public long sum(int [] values) {
+        return stream(values).asLongStream().sum();
+    }
+    
+    public int min(int [] values) {
+        if (values.length == 0) {
+            throw new NoSuchElementException("Empty array");
+        }
+        return stream(values).min().getAsInt();
+    }
+    
+    public int max(int [] values) {
+        if (values.length == 0) {
+            throw new NoSuchElementException("Empty array");
+        }
+        return stream(values).max().getAsInt();
+    }
+    
+    public int count(int [] values) {
+        return values.length;
+    }
+    
+    /**
+     * Returns the mean of the values, NaN if there are none.
+     */
+    public double mean(int [] values) {
+        return values.length == 0 ? Double.NaN : (double) sum(values) / values.length;
+    }
+    
+    /**
+     * Returns count, sum, min, max and mean of the values in one pass.
+     */
+    public IntSummaryStatistics statistics(int [] values) {
+        return stream(values).collect(IntSummaryStatistics::new,
+                IntSummaryStatistics::accept, IntSummaryStatistics::combine);
+    }
+    
+    /**
+     * Splits lo to hi into equal-width bins and counts the values in each.
+     * Values outside lo to hi are not counted.
+     */
+    public long [] histogram(int [] values, final int lo, int hi, final int bins) {
+        if (bins <= 0 || hi < lo) {
+            throw new IllegalArgumentException("Bins must be positive and lo <= hi");
+        }
+        final long width = (long) hi - lo + 1;
+        return stream(values).collect(() -> new long [bins], (counts, v) -> {
+            long offset = (long) v - lo;
+            if (offset >= 0 && offset < width) {
+                counts[(int) (offset * bins / width)]++;
+            }
+        }, (left, right) -> {
+            for (int k = 0; k < bins; k++) {
+                left[k] += right[k];
+            }
+        });
+    }
+    
+    private static IntStream stream(int [] values) {
+        IntStream stream = IntStream.of(values);
+        return values.length >= PARALLEL_THRESHOLD ? stream.parallel() : stream;
+    }
+    
+    private static long ceilDiv(long x, long y) {
+        return (x + y - 1) / y;
+    }
 }
@@ -30,15 +30,138 @@
  */
 
 package jstojava;
-import java.util.Date;
-import java.text.SimpleDateFormat;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DateHelper {
     
-    public static String label = null;
-        
+    // shared by all helpers of the same locale, pattern and time zone
+    private static final ConcurrentMap<String, CachedFormatter> formatters =
+            new ConcurrentHashMap<String, CachedFormatter>();
+    
+    public String label = null;
+    
+    private final CachedFormatter formatter;
+    
+    /**
+     * Formats dates in the short date and time style of the default locale,
+     * as new SimpleDateFormat() does.
+     */
+    public DateHelper() {
+        this(Locale.getDefault(), null);
+    }
+    
+    /**
+     * @param pattern a DateTimeFormatter pattern, null for the short date
+     * and time style of the locale
+     */
+    public DateHelper(Locale locale, String pattern) {
+        ZoneId zone = ZoneId.systemDefault();
+        String key = locale.toLanguageTag() + "|" + zone.getId() + "|" + pattern;
+        CachedFormatter f = formatters.get(key);
+        if (f == null) {
+            DateTimeFormatter dtf = pattern == null
+                    ? DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT)
+                    : DateTimeFormatter.ofPattern(pattern);
+            f = new CachedFormatter(dtf.withLocale(locale).withZone(zone), isWholeSeconds(pattern));
+            CachedFormatter raced = formatters.putIfAbsent(key, f);
+            if (raced != null) {
+                f = raced;
+            }
+        }
+        formatter = f;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    public void setLabel(String label) {
+        this.label = label;
+    }
+    
     public String getDate() {
-        return label + " " + new SimpleDateFormat().format(new Date());
+        return label + " " + formatter.format(System.currentTimeMillis());
+    }
+    
+    public String format(long epochMillis) {
+        return formatter.format(epochMillis);
+    }
+    
+    /**
+     * Formats many timestamps, each second formatted once when the
+     * timestamps come in order.
+     */
+    public String [] format(long [] epochMillis) {
+        String [] dates = new String [epochMillis.length];
+        long second = Long.MIN_VALUE;
+        String text = null;
+        for (int i = 0; i < epochMillis.length; i++) {
+            long s = Math.floorDiv(epochMillis[i], 1000L);
+            if (!formatter.wholeSeconds || s != second || text == null) {
+                text = formatter.formatter.format(Instant.ofEpochMilli(epochMillis[i]));
+                second = s;
+            }
+            dates[i] = text;
+        }
+        return dates;
+    }
+    
+    // whether a pattern shows nothing finer than seconds, quoted text aside
+    private static boolean isWholeSeconds(String pattern) {
+        if (pattern == null) {
+            return true;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && (c == 'S' || c == 'n' || c == 'N' || c == 'A')) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static final class CachedFormatter {
+        final DateTimeFormatter formatter;
+        final boolean wholeSeconds;
+        // the last second formatted, replaced as a whole so readers need no lock
+        private volatile Entry last;
+        
+        CachedFormatter(DateTimeFormatter formatter, boolean wholeSeconds) {
+            this.formatter = formatter;
+            this.wholeSeconds = wholeSeconds;
+        }
+        
+        String format(long epochMillis) {
+            if (!wholeSeconds) {
+                return formatter.format(Instant.ofEpochMilli(epochMillis));
+            }
+            long second = Math.floorDiv(epochMillis, 1000L);
+            Entry e = last;
+            if (e == null || e.second != second) {
+                e = new Entry(second, formatter.format(Instant.ofEpochSecond(second)));
+                last = e;
+            }
+            return e.text;
+        }
+    }
+    
+    private static final class Entry {
+        final long second;
+        final String text;
+        
+        Entry(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
     }
-
 }
@@ -0,0 +1,305 @@
+package jstojava;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for MathBridge: parses text into maps, lists, strings,
+ * doubles, booleans and null, and writes those plus the arrays returned by
+ * MathSession.batch. JavaScript numbers are doubles, so longs beyond
+ * +/-2^53, such as large range sums, are written as strings to keep every
+ * digit; BigInt(s) restores them in the page.
+ */
+final class Json {
+
+    // largest magnitude a JavaScript number holds exactly, 2^53 - 1
+    static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+    // deepest nesting of arrays and objects parsed, to keep the stack bounded
+    static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private int pos;
+    private int depth;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    static Object parse(String text) {
+        Json json = new Json(text);
+        json.skipSpace();
+        Object value = json.value();
+        json.skipSpace();
+        if (json.pos != text.length()) {
+            throw json.error("Unexpected text");
+        }
+        return value;
+    }
+
+    static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    static void write(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            quote(sb, (String) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                sb.append("null");
+            } else if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+                sb.append((long) d);
+            } else {
+                sb.append(d);
+            }
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            writeLong(sb, ((Number) value).longValue());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof int []) {
+            int [] array = (int []) value;
+            sb.append('[');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(array[i]);
+            }
+            sb.append(']');
+        } else if (value instanceof long []) {
+            long [] array = (long []) value;
+            sb.append('[');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                writeLong(sb, array[i]);
+            }
+            sb.append(']');
+        } else if (value instanceof Object []) {
+            Object [] array = (Object []) value;
+            sb.append('[');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                write(sb, array[i]);
+            }
+            sb.append(']');
+        } else if (value instanceof Collection) {
+            write(sb, ((Collection<?>) value).toArray());
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                quote(sb, String.valueOf(e.getKey()));
+                sb.append(':');
+                write(sb, e.getValue());
+            }
+            sb.append('}');
+        } else {
+            quote(sb, value.toString());
+        }
+    }
+
+    private static void writeLong(StringBuilder sb, long value) {
+        if (value > MAX_SAFE_INTEGER || value < -MAX_SAFE_INTEGER) {
+            sb.append('"').append(value).append('"');
+        } else {
+            sb.append(value);
+        }
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private Object value() {
+        if (pos >= text.length()) {
+            throw error("Unexpected end");
+        }
+        char c = text.charAt(pos);
+        if (c == '{') {
+            return object();
+        } else if (c == '[') {
+            return array();
+        } else if (c == '"') {
+            return string();
+        } else if (text.startsWith("true", pos)) {
+            pos += 4;
+            return Boolean.TRUE;
+        } else if (text.startsWith("false", pos)) {
+            pos += 5;
+            return Boolean.FALSE;
+        } else if (text.startsWith("null", pos)) {
+            pos += 4;
+            return null;
+        }
+        return number();
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        enter();
+        skipSpace();
+        if (peek() == '}') {
+            pos++;
+            depth--;
+            return map;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') {
+                throw error("Expected a key");
+            }
+            String key = string();
+            skipSpace();
+            expect(':');
+            skipSpace();
+            map.put(key, value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                depth--;
+                return map;
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> list = new ArrayList<Object>();
+        enter();
+        skipSpace();
+        if (peek() == ']') {
+            pos++;
+            depth--;
+            return list;
+        }
+        while (true) {
+            skipSpace();
+            list.add(value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect(']');
+                depth--;
+                return list;
+            }
+        }
+    }
+
+    private String string() {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (true) {
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            c = text.charAt(pos++);
+            switch (c) {
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > text.length()) {
+                        throw error("Bad escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad escape");
+                    }
+                    pos += 4;
+                    break;
+                default: sb.append(c);
+            }
+        }
+    }
+
+    private Double number() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+            pos++;
+        }
+        try {
+            return Double.valueOf(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw error("Unexpected character");
+        }
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("Nested deeper than " + MAX_DEPTH);
+        }
+        pos++;
+    }
+
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : 0;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + pos);
+    }
+}
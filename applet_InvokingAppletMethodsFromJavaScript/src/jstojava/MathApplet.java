@@ -52,4 +52,22 @@ public class MathApplet extends Applet {
     public void printOut(String text) {
         System.out.println(text);
     }
+
+    /**
+     * Runs a list of operations in one call from the page, each operation
+     * being its name followed by its arguments; see MathSession.batch for
+     * the operations. The batch creates one calculator and one date helper,
+     * on first use.
+     * @return one result per operation, in order; null for operations that
+     * return nothing
+     */
+    public Object [] batch(String [] ops) {
+        MathSession session = new MathSession();
+        session.userName = userName;
+        try {
+            return session.batch(ops);
+        } finally {
+            userName = session.userName;
+        }
+    }
 }
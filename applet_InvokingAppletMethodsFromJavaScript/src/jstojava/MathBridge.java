@@ -0,0 +1,600 @@
+package jstojava;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves MathSession to page JavaScript on localhost, now that browsers no
+ * longer run applets. Nothing but the JDK is needed.
+ * <pre>
+ * GET  /                the bridge page, BridgePage.html
+ * GET  /mathbridge.js   the JavaScript client
+ * POST /batch           runs a JSON array of operations (see
+ *                       MathSession.batch) in a new session and answers
+ *                       {"results": [...]} or {"error": "..."}
+ * GET  /ws              WebSocket: each text message {"id": n, "ops": [...]}
+ *                       runs on the session of the connection and is
+ *                       answered {"id": n, "results": [...]} or
+ *                       {"id": n, "error": "..."}
+ * </pre>
+ * Connections are kept alive and requests may be pipelined: they are
+ * answered in order, and answers are flushed once no further request is
+ * waiting. Each connection is served by one thread of a pool that grows up
+ * to the maximum and shrinks when idle; connections beyond the maximum are
+ * refused with 503. An open WebSocket holds its thread, so the maximum is
+ * also the number of pages that can stay connected at once (64 by
+ * default). To free the threads of pages that are gone or left open, a
+ * WebSocket quiet for a while is pinged and dropped if the ping is not
+ * answered, and one that sends no message for ten minutes is closed with
+ * 1001; the page then has to connect again. Only pages served from the
+ * bridge itself may call it. Malformed requests are answered with 400, and
+ * batches with results too large to send with 400 as well.
+ * <p>
+ * Usage: java jstojava.MathBridge [port] [max threads]
+ */
+public class MathBridge {
+
+    public static final int DEFAULT_PORT = 8090;
+
+    public static final int DEFAULT_MAX_THREADS = 64;
+
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+    // largest request body or WebSocket message accepted
+    private static final int MAX_BODY = 1 << 20;
+
+    private static final int MAX_LINE = 8192;
+
+    // time an HTTP connection may stay idle, in milliseconds
+    private static final int IDLE_TIMEOUT = 30000;
+
+    // time a WebSocket may stay quiet before it is pinged, and then before
+    // it is dropped if it does not answer, in milliseconds
+    private static final int PING_INTERVAL = 30000;
+
+    // time a WebSocket may go without a message, in milliseconds
+    private static final long WEBSOCKET_IDLE_TIMEOUT = 10 * 60 * 1000L;
+
+    private final ServerSocket server;
+
+    private final ThreadPoolExecutor pool;
+
+    private final Map<String, byte []> resources = new HashMap<String, byte []>();
+
+    private final Map<String, String> types = new HashMap<String, String>();
+
+    public static void main(String [] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_THREADS;
+        MathBridge bridge = new MathBridge(port, maxThreads);
+        System.out.println("MathBridge on http://localhost:" + bridge.getPort() + "/");
+        bridge.run();
+    }
+
+    /**
+     * Listens on the loopback interface.
+     * @param port the port, 0 for any free port
+     */
+    public MathBridge(int port, int maxThreads) throws IOException {
+        maxThreads = Math.max(1, maxThreads);
+        int core = Math.min(maxThreads, Runtime.getRuntime().availableProcessors());
+        pool = new ThreadPoolExecutor(core, maxThreads, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>());
+        pool.allowCoreThreadTimeOut(true);
+        addResource("/", "/BridgePage.html", "text/html; charset=utf-8");
+        addResource("/mathbridge.js", "/mathbridge.js", "application/javascript; charset=utf-8");
+        server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until close() is called.
+     */
+    public void run() throws IOException {
+        while (!server.isClosed()) {
+            final Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketException e) {
+                if (server.isClosed()) {
+                    break;
+                }
+                throw e;
+            }
+            try {
+                pool.execute(new Runnable() {
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refuse(socket);
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        server.close();
+        pool.shutdownNow();
+    }
+
+    private void addResource(String path, String name, String type) throws IOException {
+        InputStream in = MathBridge.class.getResourceAsStream(name);
+        if (in == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte [] buffer = new byte [4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, n);
+            }
+            resources.put(path, bytes.toByteArray());
+            types.put(path, type);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void refuse(Socket socket) {
+        try {
+            OutputStream out = socket.getOutputStream();
+            respond(out, 503, "text/plain", "Too many connections\n".getBytes(UTF8), false);
+            out.flush();
+        } catch (IOException e) {
+            // the connection is closed below anyway
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private void serve(Socket socket) {
+        OutputStream out = null;
+        try {
+            socket.setSoTimeout(IDLE_TIMEOUT);
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                Request request = readRequest(in);
+                if (request == null) {
+                    break;
+                }
+                if ("/ws".equals(request.path) && request.header("upgrade").equalsIgnoreCase("websocket")) {
+                    if (acceptWebSocket(request, out)) {
+                        // quiet pages are pinged instead of timed out
+                        socket.setSoTimeout(PING_INTERVAL);
+                        webSocket(in, out);
+                    }
+                    break;
+                }
+                boolean keepAlive = handle(request, out);
+                // answers to pipelined requests go out together
+                if (!keepAlive || in.available() == 0) {
+                    out.flush();
+                }
+                if (!keepAlive) {
+                    break;
+                }
+            }
+            out.flush();
+        } catch (BadRequestException e) {
+            try {
+                respond(out, e.status, "text/plain", (e.getMessage() + "\n").getBytes(UTF8), false);
+                out.flush();
+            } catch (IOException ignored) {
+                // the connection is closed below anyway
+            }
+        } catch (IOException e) {
+            // timed out or closed by the client
+        } catch (RuntimeException e) {
+            // a bug drops the connection, not the thread
+            System.err.println("MathBridge connection failed: " + e);
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private boolean handle(Request request, OutputStream out) throws IOException {
+        boolean keepAlive = request.keepAlive();
+        if (!allowedOrigin(request)) {
+            respond(out, 403, "text/plain", "Forbidden origin\n".getBytes(UTF8), keepAlive);
+        } else if ("POST".equals(request.method) && "/batch".equals(request.path)) {
+            Map<String, Object> answer = new LinkedHashMap<String, Object>();
+            int status = 200;
+            try {
+                answer.put("results", new MathSession().batch(toOps(Json.parse(new String(request.body, UTF8)))));
+            } catch (RuntimeException e) {
+                status = 400;
+                answer.put("error", message(e));
+            }
+            respond(out, status, "application/json; charset=utf-8", Json.write(answer).getBytes(UTF8), keepAlive);
+        } else if ("GET".equals(request.method) || "HEAD".equals(request.method)) {
+            byte [] resource = resources.get(request.path);
+            if (resource == null) {
+                respond(out, 404, "text/plain", "Not found\n".getBytes(UTF8), keepAlive);
+            } else {
+                respond(out, 200, types.get(request.path),
+                        "HEAD".equals(request.method) ? null : resource, keepAlive, resource.length);
+            }
+        } else {
+            respond(out, 405, "text/plain", "Method not allowed\n".getBytes(UTF8), keepAlive);
+        }
+        return keepAlive;
+    }
+
+    // pages of other sites must not drive the bridge through the browser
+    private boolean allowedOrigin(Request request) {
+        String origin = request.header("origin");
+        if (origin.length() == 0) {
+            return true;
+        }
+        int port = getPort();
+        return origin.equals("http://localhost:" + port) || origin.equals("http://127.0.0.1:" + port);
+    }
+
+    private static String [] toOps(Object json) {
+        if (!(json instanceof List)) {
+            throw new IllegalArgumentException("Operations must be an array");
+        }
+        List<?> list = (List<?>) json;
+        String [] ops = new String [list.size()];
+        for (int i = 0; i < ops.length; i++) {
+            Object o = list.get(i);
+            if (o instanceof Double && ((Double) o) == Math.rint((Double) o)) {
+                ops[i] = Long.toString(((Double) o).longValue());
+            } else if (o instanceof List || o instanceof Map) {
+                throw new IllegalArgumentException("Operation " + i + " is not a value");
+            } else {
+                ops[i] = o == null ? null : o.toString();
+            }
+        }
+        return ops;
+    }
+
+    private static String message(RuntimeException e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    private static void respond(OutputStream out, int status, String type, byte [] body,
+            boolean keepAlive) throws IOException {
+        respond(out, status, type, body, keepAlive, body.length);
+    }
+
+    private static void respond(OutputStream out, int status, String type, byte [] body,
+            boolean keepAlive, int length) throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n");
+        head.append("Content-Type: ").append(type).append("\r\n");
+        head.append("Content-Length: ").append(length).append("\r\n");
+        head.append("Cache-Control: no-cache\r\n");
+        head.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n\r\n");
+        out.write(head.toString().getBytes(LATIN1));
+        if (body != null) {
+            out.write(body);
+        }
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 400: return "Bad Request";
+            case 403: return "Forbidden";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 413: return "Payload Too Large";
+            case 426: return "Upgrade Required";
+            case 501: return "Not Implemented";
+            default: return "Service Unavailable";
+        }
+    }
+
+    private static Request readRequest(InputStream in) throws IOException {
+        String line = readLine(in);
+        while (line != null && line.length() == 0) {
+            line = readLine(in);
+        }
+        if (line == null) {
+            return null;
+        }
+        String [] parts = line.split(" ");
+        if (parts.length != 3) {
+            throw new BadRequestException(400, "Bad request line");
+        }
+        Request request = new Request();
+        request.method = parts[0];
+        int query = parts[1].indexOf('?');
+        request.path = query < 0 ? parts[1] : parts[1].substring(0, query);
+        request.version = parts[2];
+        while ((line = readLine(in)) != null && line.length() > 0) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                request.headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                        line.substring(colon + 1).trim());
+            }
+        }
+        if (request.header("transfer-encoding").length() > 0) {
+            throw new BadRequestException(501, "Chunked bodies are not supported");
+        }
+        String length = request.header("content-length");
+        long n;
+        try {
+            n = length.length() == 0 ? 0 : Long.parseLong(length);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(400, "Bad Content-Length");
+        }
+        if (n < 0) {
+            throw new BadRequestException(400, "Bad Content-Length");
+        }
+        if (n > MAX_BODY) {
+            throw new BadRequestException(413, "Body larger than " + MAX_BODY + " bytes");
+        }
+        request.body = readFully(in, (int) n);
+        return request;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') {
+                int end = sb.length();
+                if (end > 0 && sb.charAt(end - 1) == '\r') {
+                    sb.setLength(end - 1);
+                }
+                return sb.toString();
+            }
+            if (sb.length() >= MAX_LINE) {
+                throw new BadRequestException(400, "Line too long");
+            }
+            sb.append((char) c);
+        }
+        if (sb.length() > 0) {
+            throw new EOFException();
+        }
+        return null;
+    }
+
+    private static byte [] readFully(InputStream in, int n) throws IOException {
+        byte [] bytes = new byte [n];
+        int off = 0;
+        while (off < n) {
+            int read = in.read(bytes, off, n - off);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            off += read;
+        }
+        return bytes;
+    }
+
+    // WebSocket (RFC 6455)
+
+    private boolean acceptWebSocket(Request request, OutputStream out) throws IOException {
+        String key = request.header("sec-websocket-key");
+        if (!allowedOrigin(request)) {
+            respond(out, 403, "text/plain", "Forbidden origin\n".getBytes(UTF8), false);
+            return false;
+        }
+        if (key.length() == 0 || !"13".equals(request.header("sec-websocket-version"))) {
+            respond(out, 426, "text/plain", "WebSocket version 13 required\n".getBytes(UTF8), false);
+            return false;
+        }
+        String accept;
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            accept = Base64.getEncoder().encodeToString(sha1.digest((key + WEBSOCKET_GUID).getBytes(LATIN1)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        out.write(("HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(LATIN1));
+        out.flush();
+        return true;
+    }
+
+    private void webSocket(InputStream in, OutputStream out) throws IOException {
+        MathSession session = new MathSession();
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        int messageType = 0;
+        long lastMessage = System.currentTimeMillis();
+        boolean pinged = false;
+        while (true) {
+            int b0;
+            try {
+                b0 = in.read();
+            } catch (SocketTimeoutException e) {
+                if (pinged) {
+                    // no frame since the ping: the page is gone
+                    return;
+                }
+                if (System.currentTimeMillis() - lastMessage >= WEBSOCKET_IDLE_TIMEOUT) {
+                    sendClose(out, 1001);
+                    return;
+                }
+                sendFrame(out, 9, new byte [0]);
+                out.flush();
+                pinged = true;
+                continue;
+            }
+            if (b0 < 0) {
+                return;
+            }
+            // any frame, pongs included, shows the page is still there
+            pinged = false;
+            int b1 = readByte(in);
+            boolean fin = (b0 & 0x80) != 0;
+            int opcode = b0 & 0x0F;
+            long length = b1 & 0x7F;
+            if (length == 126) {
+                length = (readByte(in) << 8) | readByte(in);
+            } else if (length == 127) {
+                length = 0;
+                for (int i = 0; i < 8; i++) {
+                    length = (length << 8) | readByte(in);
+                }
+            }
+            if ((b1 & 0x80) == 0 || length < 0) {
+                // clients must mask their frames, and lengths have the top bit clear
+                sendClose(out, 1002);
+                return;
+            }
+            if (length > MAX_BODY || message.size() + length > MAX_BODY) {
+                sendClose(out, 1009);
+                return;
+            }
+            byte [] mask = readFully(in, 4);
+            byte [] payload = readFully(in, (int) length);
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i & 3];
+            }
+
+            if (opcode == 8) {
+                sendClose(out, payload.length >= 2 ? ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF) : 1000);
+                return;
+            } else if (opcode == 9) {
+                sendFrame(out, 10, payload);
+            } else if (opcode == 0 || opcode == 1 || opcode == 2) {
+                if (opcode != 0) {
+                    messageType = opcode;
+                }
+                message.write(payload);
+                if (fin) {
+                    if (messageType != 1) {
+                        sendClose(out, 1003);
+                        return;
+                    }
+                    String answer = answer(session, new String(message.toByteArray(), UTF8));
+                    message.reset();
+                    lastMessage = System.currentTimeMillis();
+                    sendFrame(out, 1, answer.getBytes(UTF8));
+                }
+            }
+            // answers to pipelined messages go out together
+            if (in.available() == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    private static String answer(MathSession session, String text) {
+        Map<String, Object> answer = new LinkedHashMap<String, Object>();
+        try {
+            Object json = Json.parse(text);
+            if (!(json instanceof Map)) {
+                throw new IllegalArgumentException("Messages must be objects");
+            }
+            Map<?, ?> request = (Map<?, ?>) json;
+            answer.put("id", request.get("id"));
+            answer.put("results", session.batch(toOps(request.get("ops"))));
+        } catch (RuntimeException e) {
+            answer.remove("results");
+            answer.put("error", message(e));
+        }
+        return Json.write(answer);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static void sendFrame(OutputStream out, int opcode, byte [] payload) throws IOException {
+        out.write(0x80 | opcode);
+        if (payload.length < 126) {
+            out.write(payload.length);
+        } else if (payload.length < 65536) {
+            out.write(126);
+            out.write(payload.length >>> 8);
+            out.write(payload.length);
+        } else {
+            out.write(127);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) ((long) payload.length >>> shift));
+            }
+        }
+        out.write(payload);
+    }
+
+    private static void sendClose(OutputStream out, int code) throws IOException {
+        sendFrame(out, 8, new byte [] {(byte) (code >>> 8), (byte) code});
+        out.flush();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing left to do
+        }
+    }
+
+    // a request that cannot be read, answered with its status before closing
+    private static final class BadRequestException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static final class Request {
+        String method;
+        String path;
+        String version;
+        final Map<String, String> headers = new HashMap<String, String>();
+        byte [] body;
+
+        String header(String name) {
+            String value = headers.get(name);
+            return value == null ? "" : value;
+        }
+
+        boolean keepAlive() {
+            String connection = header("connection").toLowerCase(Locale.ROOT);
+            if ("HTTP/1.0".equals(version)) {
+                return connection.contains("keep-alive");
+            }
+            return !connection.contains("close");
+        }
+    }
+}
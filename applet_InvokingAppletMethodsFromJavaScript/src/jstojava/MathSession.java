@@ -0,0 +1,141 @@
+package jstojava;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The state and methods MathApplet offers to a page, without the applet,
+ * for callers that cannot create one such as MathBridge. A session keeps
+ * one calculator and one date helper, so that operations of later calls
+ * see the numbers and label set by earlier ones.
+ */
+public class MathSession {
+
+    // most numbers the arrays returned by one batch may hold together, so
+    // that a remote caller cannot make the session run out of memory
+    public static final int MAX_BATCH_NUMBERS = 1 << 20;
+
+    public String userName = null;
+
+    private Calculator calculator;
+
+    private DateHelper dateHelper;
+
+    public String getGreeting() {
+        return "Hello " + userName;
+    }
+
+    public Calculator getCalculator() {
+        if (calculator == null) {
+            calculator = new Calculator();
+        }
+        return calculator;
+    }
+
+    public DateHelper getDateHelper() {
+        if (dateHelper == null) {
+            dateHelper = new DateHelper();
+        }
+        return dateHelper;
+    }
+
+    public void printOut(String text) {
+        System.out.println(text);
+    }
+
+    /**
+     * Runs a list of operations, each operation being its name followed by
+     * its arguments:
+     * <pre>
+     * userName name        sets userName
+     * getGreeting          returns getGreeting()
+     * setNums a b          calls setNums on the calculator
+     * add                  returns add()
+     * getRangeSize         returns getRangeSize()
+     * getNumInRange        returns getNumInRange()
+     * getRangePage o n     returns getNumInRange(o, n), for paging
+     * getRangeSum          returns getRangeSum()
+     * getRangeMin          returns getRangeMin()
+     * getRangeMax          returns getRangeMax()
+     * getRangeMean         returns getRangeMean()
+     * getRangeHistogram n  returns getRangeHistogram(n)
+     * printOut text        calls printOut
+     * label text           sets the label of the date helper
+     * getDate              returns getDate()
+     * </pre>
+     * The arrays returned may hold MAX_BATCH_NUMBERS numbers in all; larger
+     * ranges are read with getRangePage over several batches.
+     * @return one result per operation, in order; null for operations that
+     * return nothing
+     * @throws IllegalArgumentException if an operation or argument is not
+     * valid, or the results would be too large
+     */
+    public Object [] batch(String [] ops) {
+        List<Object> results = new ArrayList<Object>();
+        long numbers = 0;
+        int i = 0;
+        while (i < ops.length) {
+            String op = ops[i++];
+            Object result = null;
+            if ("userName".equals(op)) {
+                userName = arg(ops, i++, op);
+            } else if ("getGreeting".equals(op)) {
+                result = getGreeting();
+            } else if ("printOut".equals(op)) {
+                printOut(arg(ops, i++, op));
+            } else if ("setNums".equals(op)) {
+                int numA = Integer.parseInt(arg(ops, i++, op).trim());
+                int numB = Integer.parseInt(arg(ops, i++, op).trim());
+                getCalculator().setNums(numA, numB);
+            } else if ("add".equals(op)) {
+                result = getCalculator().add();
+            } else if ("getRangeSize".equals(op)) {
+                result = getCalculator().getRangeSize();
+            } else if ("getNumInRange".equals(op)) {
+                numbers = reserve(numbers, getCalculator().getRangeSize(), op);
+                result = getCalculator().getNumInRange();
+            } else if ("getRangePage".equals(op)) {
+                long offset = Long.parseLong(arg(ops, i++, op).trim());
+                int length = Integer.parseInt(arg(ops, i++, op).trim());
+                long size = Math.max(0, Math.min(length, getCalculator().getRangeSize() - Math.max(0, offset)));
+                numbers = reserve(numbers, size, op);
+                result = getCalculator().getNumInRange(offset, length);
+            } else if ("getRangeSum".equals(op)) {
+                result = getCalculator().getRangeSum();
+            } else if ("getRangeMin".equals(op)) {
+                result = getCalculator().getRangeMin();
+            } else if ("getRangeMax".equals(op)) {
+                result = getCalculator().getRangeMax();
+            } else if ("getRangeMean".equals(op)) {
+                result = getCalculator().getRangeMean();
+            } else if ("getRangeHistogram".equals(op)) {
+                int bins = Integer.parseInt(arg(ops, i++, op).trim());
+                numbers = reserve(numbers, bins, op);
+                result = getCalculator().getRangeHistogram(bins);
+            } else if ("label".equals(op)) {
+                getDateHelper().setLabel(arg(ops, i++, op));
+            } else if ("getDate".equals(op)) {
+                result = getDateHelper().getDate();
+            } else {
+                throw new IllegalArgumentException("Unknown operation at " + (i - 1) + ": " + op);
+            }
+            results.add(result);
+        }
+        return results.toArray();
+    }
+
+    private static long reserve(long numbers, long more, String op) {
+        if (numbers + more > MAX_BATCH_NUMBERS) {
+            throw new IllegalArgumentException(op + " would return more than " + MAX_BATCH_NUMBERS
+                    + " numbers in one batch; use getRangePage");
+        }
+        return numbers + more;
+    }
+
+    private static String arg(String [] ops, int i, String op) {
+        if (i >= ops.length) {
+            throw new IllegalArgumentException("Missing argument of " + op);
+        }
+        return ops[i];
+    }
+}
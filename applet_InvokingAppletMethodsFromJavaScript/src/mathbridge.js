@@ -0,0 +1,207 @@
+/*
+ * Client of jstojava.MathBridge, in the call style of the applet page:
+ *
+ *     var mathApplet = MathBridge.connect();
+ *     mathApplet.userName = "...";
+ *     var greeting = await mathApplet.getGreeting();
+ *     var calculator = mathApplet.getCalculator();
+ *     calculator.setNums(numA, numB);
+ *     var sum = await calculator.add();
+ *
+ * Every method returns a promise of its result. Calls are sent over one
+ * WebSocket without waiting for the previous answers, and run on the Java
+ * side in the order they were made. Setting userName or label is sent
+ * with the next call. mathApplet.batch(ops) sends a list of operations in
+ * one message (see MathSession.batch), and MathBridge.batch(ops) does the
+ * same over HTTP without a WebSocket. The bridge closes a WebSocket that
+ * sends nothing for ten minutes; later calls are then rejected, and
+ * MathBridge.connect() opens a new session.
+ */
+var MathBridge = (function () {
+
+    function baseUrl() {
+        return window.location.protocol + "//" + window.location.host;
+    }
+
+    function Connection(url) {
+        var self = this;
+        this.nextId = 1;
+        this.pending = {};
+        this.queue = [];
+        this.socket = new WebSocket(url);
+        this.socket.onopen = function () {
+            for (var i = 0; i < self.queue.length; i++) {
+                self.socket.send(self.queue[i]);
+            }
+            self.queue = [];
+        };
+        this.socket.onmessage = function (event) {
+            var answer = JSON.parse(event.data);
+            var call = self.pending[answer.id];
+            delete self.pending[answer.id];
+            if (!call) {
+                return;
+            }
+            if (answer.error !== undefined) {
+                call.reject(new Error(answer.error));
+            } else {
+                call.resolve(answer.results);
+            }
+        };
+        this.socket.onclose = function () {
+            for (var id in self.pending) {
+                self.pending[id].reject(new Error("MathBridge connection closed"));
+            }
+            self.pending = {};
+        };
+    }
+
+    Connection.prototype.send = function (ops) {
+        var self = this;
+        var id = this.nextId++;
+        var message = JSON.stringify({id: id, ops: ops});
+        return new Promise(function (resolve, reject) {
+            self.pending[id] = {resolve: resolve, reject: reject};
+            if (self.socket.readyState === WebSocket.OPEN) {
+                self.socket.send(message);
+            } else if (self.socket.readyState === WebSocket.CONNECTING) {
+                self.queue.push(message);
+            } else {
+                delete self.pending[id];
+                reject(new Error("MathBridge connection closed"));
+            }
+        });
+    };
+
+    function MathApplet(connection) {
+        this.connection = connection;
+        this.userName = null;
+        this.sentUserName = null;
+        this.calculator = new Calculator(this);
+        this.dateHelper = new DateHelper(this);
+    }
+
+    // sends ops, preceded by the fields changed since the last call
+    MathApplet.prototype.call = function (ops) {
+        var prefix = [];
+        if (this.userName !== this.sentUserName) {
+            prefix.push("userName", this.userName === null ? null : String(this.userName));
+            this.sentUserName = this.userName;
+        }
+        var helper = this.dateHelper;
+        if (helper.label !== helper.sentLabel) {
+            prefix.push("label", helper.label === null ? null : String(helper.label));
+            helper.sentLabel = helper.label;
+        }
+        var skip = prefix.length / 2;
+        return this.connection.send(prefix.concat(ops)).then(function (results) {
+            return results.slice(skip);
+        });
+    };
+
+    MathApplet.prototype.first = function (ops) {
+        return this.call(ops).then(function (results) {
+            return results[0];
+        });
+    };
+
+    MathApplet.prototype.getGreeting = function () {
+        return this.first(["getGreeting"]);
+    };
+
+    MathApplet.prototype.getCalculator = function () {
+        return this.calculator;
+    };
+
+    MathApplet.prototype.getDateHelper = function () {
+        return this.dateHelper;
+    };
+
+    MathApplet.prototype.printOut = function (text) {
+        return this.first(["printOut", String(text)]);
+    };
+
+    MathApplet.prototype.batch = function (ops) {
+        return this.call(ops);
+    };
+
+    function Calculator(applet) {
+        this.applet = applet;
+    }
+
+    Calculator.prototype.setNums = function (numA, numB) {
+        return this.applet.first(["setNums", String(numA), String(numB)]);
+    };
+
+    Calculator.prototype.add = function () {
+        return this.applet.first(["add"]);
+    };
+
+    Calculator.prototype.getRangeSize = function () {
+        return this.applet.first(["getRangeSize"]);
+    };
+
+    // with an offset and a length, one page of the range
+    Calculator.prototype.getNumInRange = function (offset, length) {
+        if (offset === undefined) {
+            return this.applet.first(["getNumInRange"]);
+        }
+        return this.applet.first(["getRangePage", String(offset), String(length)]);
+    };
+
+    // the sum is a decimal string when beyond 2^53, which numbers cannot hold
+    Calculator.prototype.getRangeSum = function () {
+        return this.applet.first(["getRangeSum"]);
+    };
+
+    Calculator.prototype.getRangeMin = function () {
+        return this.applet.first(["getRangeMin"]);
+    };
+
+    Calculator.prototype.getRangeMax = function () {
+        return this.applet.first(["getRangeMax"]);
+    };
+
+    // null for an empty range
+    Calculator.prototype.getRangeMean = function () {
+        return this.applet.first(["getRangeMean"]);
+    };
+
+    Calculator.prototype.getRangeHistogram = function (bins) {
+        return this.applet.first(["getRangeHistogram", String(bins)]);
+    };
+
+    function DateHelper(applet) {
+        this.applet = applet;
+        this.label = null;
+        this.sentLabel = null;
+    }
+
+    DateHelper.prototype.getDate = function () {
+        return this.applet.first(["getDate"]);
+    };
+
+    return {
+        // opens a session; url defaults to the bridge serving the page
+        connect: function (url) {
+            var wsUrl = url || baseUrl().replace(/^http/, "ws") + "/ws";
+            return new MathApplet(new Connection(wsUrl));
+        },
+
+        // runs ops in a new session over HTTP
+        batch: function (ops, url) {
+            return fetch((url || baseUrl()) + "/batch", {
+                method: "POST",
+                headers: {"Content-Type": "application/json"},
+                body: JSON.stringify(ops)
+            }).then(function (response) {
+                return response.json();
+            }).then(function (answer) {
+                if (answer.error !== undefined) {
+                    throw new Error(answer.error);
+                }
+                return answer.results;
+            });
+        }
+    };
+})();